@@ -0,0 +1,113 @@
+package org.to0mi1.c2pa.loadtest;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 対数線形バケットによる応答時間のヒストグラム。
+ * <p>
+ * 64µs未満は1µs単位で、それ以上約35分までは2のべき乗の区間ごとに32分割したバケットで数えます。
+ * 各バケットの相対誤差は約1/32に収まり、記録はロックを伴わない単一のインクリメントで完了します。
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    /**
+     * 扱う応答時間の上限（2^31µs、約35分）のビット数。これを超える応答時間は最後のバケットに数えます。
+     */
+    private static final int MAX_MICROS_BITS = 31;
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_MICROS_BITS - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * 応答時間を記録します。
+     *
+     * @param nanos 応答時間（ナノ秒）
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.max(1, nanos / 1_000)));
+    }
+
+    long totalCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * 指定したパーセンタイルの応答時間を返します。
+     *
+     * @param percentile パーセンタイル（0〜100）
+     * @return 応答時間（マイクロ秒）。記録がない場合は{@code 0}
+     */
+    long percentileMicros(double percentile) {
+        long total = totalCount();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return upperBoundMicros(i);
+            }
+        }
+        return upperBoundMicros(counts.length() - 1);
+    }
+
+    /**
+     * パーセンタイルの要約と、記録のあるすべてのバケットを出力します。
+     *
+     * @param out 出力先
+     */
+    void print(PrintStream out) {
+        out.println("  percentiles (ms):");
+        for (double p : new double[]{50, 75, 90, 95, 99, 99.9, 99.99, 100}) {
+            out.printf(Locale.ROOT, "    p%-6s %10.3f%n", trim(p), percentileMicros(p) / 1000.0);
+        }
+        out.println("  histogram (upper bound ms, count, cumulative %):");
+        long total = totalCount();
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count == 0) {
+                continue;
+            }
+            seen += count;
+            out.printf(Locale.ROOT, "    %12.3f %10d %8.4f%%%n",
+                    upperBoundMicros(i) / 1000.0, count, 100.0 * seen / total);
+        }
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        // 最上位ビットを除いた上位5ビットで、2のべき乗の区間を32分割する
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return Math.min(LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket, BUCKETS - 1);
+    }
+
+    private static long upperBoundMicros(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+
+    private static String trim(double percentile) {
+        return percentile == Math.rint(percentile)
+                ? Long.toString((long) percentile)
+                : Double.toString(percentile);
+    }
+}
@@ -0,0 +1,161 @@
+package org.to0mi1.c2pa.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.unit.DataSize;
+import org.to0mi1.c2pa.BackendApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * スタブのCore APIに接続したバックエンドを同一プロセス内で起動し、一定の到着率で負荷をかける負荷試験。
+ * <p>
+ * Python実装のCore APIや外部のTSAを用意せずに、バックエンド単体の飽和点や性能の劣化を計測できます。
+ * 設定はすべてシステムプロパティで指定します。
+ * <ul>
+ *   <li>{@code loadtest.endpoint} - 負荷をかけるエンドポイント（{@code verify}, {@code inspect}, {@code sign}）</li>
+ *   <li>{@code loadtest.rate} - 1秒あたりのリクエスト数</li>
+ *   <li>{@code loadtest.warmup} / {@code loadtest.duration} - 暖機時間と計測時間</li>
+ *   <li>{@code loadtest.image} - 送信する画像ファイル。未指定の場合は{@code loadtest.payload-size}のダミー画像</li>
+ *   <li>{@code loadtest.stub.*} - スタブの応答時間・エラー率（{@link StubCoreServer.Settings}）</li>
+ * </ul>
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String endpoint = property("loadtest.endpoint", "verify");
+        double rate = Double.parseDouble(property("loadtest.rate", "50"));
+        Duration warmup = duration(property("loadtest.warmup", "10s"));
+        Duration measurement = duration(property("loadtest.duration", "30s"));
+        byte[] image = loadImage();
+
+        StubCoreServer.Settings stubSettings = new StubCoreServer.Settings(
+                duration(property("loadtest.stub.verify-latency", "50ms")),
+                duration(property("loadtest.stub.sign-latency", "400ms")),
+                Double.parseDouble(property("loadtest.stub.latency-sigma", "0.5")),
+                Double.parseDouble(property("loadtest.stub.error-rate", "0")),
+                Double.parseDouble(property("loadtest.stub.reset-rate", "0")),
+                Integer.parseInt(property("loadtest.stub.workers", "64")));
+        String signResponsePath = System.getProperty("loadtest.stub.sign-response");
+        byte[] signResponse = signResponsePath != null ? Files.readAllBytes(Path.of(signResponsePath)) : image;
+
+        try (StubCoreServer stub = new StubCoreServer(stubSettings, readResource("/stub/verify-response.json"), signResponse)) {
+            stub.start();
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "spring.main.banner-mode=off",
+                            "logging.level.root=WARN",
+                            "c2pa.rate-limit.enabled=false",
+                            "c2pa.core-server.url=" + stub.baseUrl())
+                    .run(args)) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                HttpRequest request = multipartRequest(URI.create("http://127.0.0.1:" + port + "/api/c2pa/" + endpoint), image);
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .build();
+
+                System.out.printf(Locale.ROOT, "Load test: POST /api/c2pa/%s at %.1f req/s, payload %d bytes, stub %s%n",
+                        endpoint, rate, image.length, stubSettings);
+                new OpenModelLoad(client, request, rate).run(warmup);
+                OpenModelLoad.Result result = new OpenModelLoad(client, request, rate).run(measurement);
+                report(result);
+            }
+        }
+    }
+
+    private static void report(OpenModelLoad.Result result) {
+        System.out.printf(Locale.ROOT, "  sent %d, completed %d, transport failures %d, dropped %d%n",
+                result.sent(), result.completed(), result.failures(), result.dropped());
+        System.out.printf(Locale.ROOT, "  throughput %.1f req/s%n", result.throughputPerSecond());
+        System.out.println("  status codes: " + result.statuses());
+        result.histogram().print(System.out);
+    }
+
+    private static HttpRequest multipartRequest(URI uri, byte[] image) throws IOException {
+        String boundary = "loadtest-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 512);
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "load test\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"loadtest.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(image);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMinutes(1))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static byte[] loadImage() throws IOException {
+        String imagePath = System.getProperty("loadtest.image");
+        if (imagePath != null) {
+            return Files.readAllBytes(Path.of(imagePath));
+        }
+        // SOI, 本文を埋めるCOMセグメント群, EOI からなるダミーのJPEG
+        int size = (int) DataSize.parse(property("loadtest.payload-size", "2MB")).toBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 4);
+        out.write(0xFF);
+        out.write(0xD8);
+        while (out.size() + 4 < size) {
+            int length = Math.min(0xFFFF, size - out.size() - 2);
+            out.write(0xFF);
+            out.write(0xFE);
+            out.write(length >>> 8);
+            out.write(length & 0xFF);
+            out.write(new byte[Math.max(0, length - 2)]);
+        }
+        out.write(0xFF);
+        out.write(0xD9);
+        return out.toByteArray();
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream in = LoadTestRunner.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(name, defaultValue);
+    }
+
+    /**
+     * {@code 500ms}, {@code 10s}, {@code 2m}形式の時間を解析します。
+     */
+    private static Duration duration(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+}
@@ -0,0 +1,133 @@
+package org.to0mi1.c2pa.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 一定の到着率でリクエストを送り続けるオープンモデルの負荷生成器。
+ * <p>
+ * 応答を待たずに予定時刻どおりにリクエストを送信するため、バックエンドが飽和しても送信間隔は変わりません。
+ * 応答時間は実際の送信時刻ではなく予定時刻から計測し、送信の遅れによって遅延が隠れる
+ * 協調的欠落（coordinated omission）を避けます。
+ * <p>
+ * 応答待ちのリクエストが{@value #MAX_OUTSTANDING}件に達している間は送信せず、取りこぼしとして数えます。
+ * 取りこぼしが発生した場合、到着率がバックエンドの処理能力を大きく超えています。
+ */
+final class OpenModelLoad {
+
+    private static final long MAX_OUTSTANDING = 100_000;
+
+    private final HttpClient client;
+    private final HttpRequest request;
+    private final double ratePerSecond;
+
+    OpenModelLoad(HttpClient client, HttpRequest request, double ratePerSecond) {
+        this.client = client;
+        this.request = request;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    /**
+     * 指定した時間だけ負荷をかけ、すべての応答を待ってから結果を返します。
+     *
+     * @param duration 負荷をかける時間
+     * @return 計測結果
+     */
+    Result run(Duration duration) throws InterruptedException {
+        Result result = new Result();
+        long intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        long total = duration.toNanos() / intervalNanos;
+        // 送信側の分として1から始め、送信を終えた後と各応答の完了時に減らす
+        AtomicLong outstanding = new AtomicLong(1);
+        CountDownLatch drained = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            if (outstanding.get() > MAX_OUTSTANDING) {
+                result.dropped.increment();
+                continue;
+            }
+            outstanding.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        result.histogram.record(System.nanoTime() - intended);
+                        if (error != null) {
+                            result.failures.increment();
+                        } else {
+                            result.statuses.computeIfAbsent(response.statusCode(), s -> new LongAdder()).increment();
+                        }
+                        if (outstanding.decrementAndGet() == 0) {
+                            drained.countDown();
+                        }
+                    });
+        }
+        if (outstanding.decrementAndGet() == 0) {
+            drained.countDown();
+        }
+        if (!drained.await(2, TimeUnit.MINUTES)) {
+            System.err.println("Timed out waiting for outstanding responses");
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        result.sent = total - result.dropped.sum();
+        return result;
+    }
+
+    /**
+     * 負荷試験の計測結果。
+     */
+    static final class Result {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private long elapsedNanos;
+        private long sent;
+
+        LatencyHistogram histogram() {
+            return histogram;
+        }
+
+        long sent() {
+            return sent;
+        }
+
+        long completed() {
+            return histogram.totalCount();
+        }
+
+        long failures() {
+            return failures.sum();
+        }
+
+        long dropped() {
+            return dropped.sum();
+        }
+
+        Map<Integer, Long> statuses() {
+            Map<Integer, Long> sorted = new TreeMap<>();
+            statuses.forEach((status, count) -> sorted.put(status, count.sum()));
+            return sorted;
+        }
+
+        double throughputPerSecond() {
+            return completed() / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.to0mi1.c2pa.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Python実装のCore APIの代わりに、記録済みの応答を返すスタブサーバー。
+ * <p>
+ * {@code /verify}には記録済みの検証結果JSONを、{@code /sign}には記録済みの署名済み画像を返します。
+ * 応答時間は対数正規分布に従って遅延させ、指定した割合でCore APIと同じ形式のエラー（502）や接続断を発生させます。
+ * 実際のCore APIと同様に、リクエスト本文はすべて読み取ってから応答します。
+ */
+final class StubCoreServer implements AutoCloseable {
+
+    private static final byte[] BAD_GATEWAY_BODY =
+            "{\"error\":\"Bad Gateway\",\"message\":\"stub injected failure\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] verifyResponse;
+    private final byte[] signResponse;
+    private final Settings settings;
+
+    /**
+     * スタブサーバーの応答特性。
+     *
+     * @param verifyLatencyMedian 検証の応答時間の中央値
+     * @param signLatencyMedian   署名の応答時間の中央値
+     * @param latencySigma        応答時間の対数正規分布のσ（大きいほど裾が重い）
+     * @param errorRate           502を返す割合
+     * @param resetRate           応答せずに接続を切断する割合
+     * @param workers             同時に処理できるリクエスト数
+     */
+    record Settings(Duration verifyLatencyMedian, Duration signLatencyMedian, double latencySigma,
+                    double errorRate, double resetRate, int workers) {
+    }
+
+    StubCoreServer(Settings settings, byte[] verifyResponse, byte[] signResponse) throws IOException {
+        this.settings = settings;
+        this.verifyResponse = verifyResponse;
+        this.signResponse = signResponse;
+        this.executor = Executors.newFixedThreadPool(settings.workers());
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.createContext("/verify", exchange ->
+                handle(exchange, settings.verifyLatencyMedian(), "application/json", this.verifyResponse));
+        this.server.createContext("/sign", exchange ->
+                handle(exchange, settings.signLatencyMedian(), "image/jpeg", this.signResponse));
+        this.server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, Duration median, String contentType, byte[] body) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+
+            Random random = ThreadLocalRandom.current();
+            sleep(lognormal(random, median));
+
+            double dice = random.nextDouble();
+            if (dice < settings.resetRate()) {
+                // 応答ヘッダーを送らずに切断し、ワーカーの再起動による接続断を模倣する
+                return;
+            }
+            if (dice < settings.resetRate() + settings.errorRate()) {
+                respond(exchange, 502, "application/json", BAD_GATEWAY_BODY);
+                return;
+            }
+            respond(exchange, 200, contentType, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long lognormal(Random random, Duration median) {
+        double nanos = median.toNanos() * Math.exp(settings.latencySigma() * random.nextGaussian());
+        return (long) nanos;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.to0mi1.c2pa.application;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.to0mi1.c2pa.application.dto.ProvenanceResponse;
+import org.to0mi1.c2pa.application.dto.RecordQuery;
+import org.to0mi1.c2pa.application.dto.RecordQueryResponse;
+import org.to0mi1.c2pa.application.dto.SoftBindingLookupResponse;
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+
+/**
+ * ネイティブイメージでレスポンスDTOをJSONに変換するためのリフレクションのヒント。
+ * <p>
+ * コントローラーの戻り値の型はSpringのAOT処理で検出されますが、{@link VerifyResponse}は
+ * 事前検証のキャッシュや索引を経由して返されることもあるため、DTOを明示的に登録します。
+ */
+class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                VerifyResponse.class, ProvenanceResponse.class, RecordQuery.class, RecordQueryResponse.class,
+                SoftBindingLookupResponse.class);
+    }
+}
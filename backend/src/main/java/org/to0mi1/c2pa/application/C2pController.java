@@ -1,19 +1,30 @@
 package org.to0mi1.c2pa.application;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Pattern;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.to0mi1.c2pa.application.dto.VerifyResponse;
+import org.to0mi1.c2pa.application.event.ManifestVerifiedEvent;
+import org.to0mi1.c2pa.application.idempotency.SignIdempotencyStore;
 import org.to0mi1.c2pa.application.mapper.VerifyResponseMapper;
+import org.to0mi1.c2pa.application.postsign.PostSignVerificationCache;
+import org.to0mi1.c2pa.application.ratelimit.ClientIdResolver;
+import org.to0mi1.c2pa.application.trust.TrustEvaluator;
 import org.to0mi1.c2pa.core.C2paApiAdapter;
 import org.to0mi1.c2pa.core.model.C2paManifest;
+import org.to0mi1.c2pa.timing.RequestTimings;
 
 import java.io.IOException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping(path = "/api/c2pa")
@@ -22,15 +33,36 @@ public class C2pController {
 
     private final C2paApiAdapter c2paApiAdapter;
     private final VerifyResponseMapper verifyResponseMapper;
+    private final SignIdempotencyStore signIdempotencyStore;
+    private final ClientIdResolver clientIdResolver;
+    private final TrustEvaluator trustEvaluator;
+    private final PostSignVerificationCache postSignVerificationCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public C2pController(C2paApiAdapter c2paApiAdapter, VerifyResponseMapper verifyResponseMapper) {
+    public C2pController(C2paApiAdapter c2paApiAdapter, VerifyResponseMapper verifyResponseMapper,
+                         SignIdempotencyStore signIdempotencyStore, ClientIdResolver clientIdResolver,
+                         TrustEvaluator trustEvaluator,
+                         PostSignVerificationCache postSignVerificationCache,
+                         ApplicationEventPublisher eventPublisher) {
         this.c2paApiAdapter = c2paApiAdapter;
         this.verifyResponseMapper = verifyResponseMapper;
+        this.signIdempotencyStore = signIdempotencyStore;
+        this.clientIdResolver = clientIdResolver;
+        this.trustEvaluator = trustEvaluator;
+        this.postSignVerificationCache = postSignVerificationCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * 画像に署名を付与します。
+     * <p>
+     * {@code Idempotency-Key}ヘッダーが指定された場合、同じクライアントからの同じキーと同じ内容のリクエストには
+     * 最初の署名結果をそのまま返し、再署名を行いません。
+     * <p>
+     * 署名済み画像はリクエストの外で検証しておき、続けて行われる同じ画像の検証に結果を使用します。
      *
+     * @param request        リクエスト（冪等性キーの送信元クライアントの識別に使用）
+     * @param idempotencyKey 冪等性キー（任意）
      * @param title 画像のタイトル
      * @param image 署名対象の画像ファイル
      * @return 署名済み画像のバイト配列
@@ -38,25 +70,40 @@ public class C2pController {
      */
     @PostMapping(value = "/sign")
     public byte[] sign(
+            HttpServletRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestParam("title") String title,
             @RequestParam("image") MultipartFile image,
             @RequestParam(value = "ai_inference", required = false) @Pattern(regexp = "allowed|notAllowed|constrained") String aiInference,
             @RequestParam(value = "ai_inference_constraints_info", required = false) String aiInferenceConstraintsInfo,
             @RequestParam(value = "ai_generative_training", required = false) @Pattern(regexp = "allowed|notAllowed|constrained") String aiGenerativeTraining,
             @RequestParam(value = "ai_generative_training_constraints_info", required = false) String aiGenerativeTrainingConstraintsInfo) throws IOException {
-        return c2paApiAdapter.sign(
+        byte[] imageBytes = image.getBytes();
+        Supplier<byte[]> signer = () -> c2paApiAdapter.sign(
                 title,
-                image.getBytes(),
+                imageBytes,
                 image.getOriginalFilename(),
                 aiInference,
                 aiInferenceConstraintsInfo,
                 aiGenerativeTraining,
                 aiGenerativeTrainingConstraintsInfo
         );
+        byte[] signed;
+        if (!StringUtils.hasText(idempotencyKey)) {
+            signed = signer.get();
+        } else {
+            String fingerprint = SignIdempotencyStore.fingerprint(imageBytes, title, image.getOriginalFilename(),
+                    aiInference, aiInferenceConstraintsInfo, aiGenerativeTraining, aiGenerativeTrainingConstraintsInfo);
+            signed = signIdempotencyStore.execute(clientIdResolver.resolve(request), idempotencyKey, fingerprint, signer);
+        }
+        postSignVerificationCache.submit(signed, image.getOriginalFilename());
+        return signed;
     }
 
     /**
      * 画像のC2PA署名を検証します。
+     * <p>
+     * 署名直後に事前検証した画像であれば、Core APIを呼び出さずにその結果を使用します。
      *
      * @param image 検証対象の画像ファイル
      * @return 検証結果（主要な項目を抜粋）
@@ -65,7 +112,76 @@ public class C2pController {
      */
     @PostMapping("/verify")
     public VerifyResponse verify(@RequestParam("image") MultipartFile image) throws IOException {
-        C2paManifest c2paManifest = c2paApiAdapter.verify(image.getBytes(), image.getOriginalFilename());
-        return verifyResponseMapper.toVerifyResponse(c2paManifest);
+        byte[] imageBytes = image.getBytes();
+        String imageSha256 = RequestTimings.current().time("digest", () -> ImageDigest.sha256(imageBytes));
+        C2paManifest precomputed = RequestTimings.current().time("precomputed",
+                () -> postSignVerificationCache.lookup(imageSha256));
+        C2paManifest c2paManifest = precomputed != null
+                ? precomputed
+                : c2paApiAdapter.verify(imageBytes, image.getOriginalFilename());
+        RequestTimings timings = recordManifestCount(c2paManifest);
+        timings.attribute("precomputed", precomputed != null);
+        VerifyResponse response = timings.time("map", () -> verifyResponseMapper.toVerifyResponse(c2paManifest));
+        timings.time("trust", () -> trustEvaluator.annotate(response, c2paManifest));
+        publishVerified(timings, new ManifestVerifiedEvent(c2paManifest, response, true, imageBytes, imageSha256));
+        return response;
+    }
+
+    /**
+     * 画像のC2PA署名を検証し、Core APIが返したマニフェストストア全体のJSONをそのまま返します。
+     * <p>
+     * 応答を変換しないため、{@link VerifyResponse}に含まれない項目も参照できます。
+     * 信頼性の評価や索引への登録は行いません。
+     *
+     * @param image 検証対象の画像ファイル
+     * @return Core APIの応答JSON
+     * @throws IOException ファイル読み込みエラー
+     */
+    @PostMapping(value = "/verify/raw", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] verifyRaw(@RequestParam("image") MultipartFile image) throws IOException {
+        return c2paApiAdapter.verifyRaw(image.getBytes(), image.getOriginalFilename());
+    }
+
+    /**
+     * 画像のC2PAマニフェストを、ハードバインディングの検証を行わずに読み取ります。
+     * <p>
+     * マニフェストを格納したセグメントのみをCore APIに送信するため、来歴の表示用途で高速に動作します。
+     * 画像が署名後に改変されていないことを確認する場合は{@link #verify(MultipartFile)}を使用してください。
+     *
+     * @param image 検査対象の画像ファイル
+     * @return 検証結果（{@code bindingChecked}は{@code false}）
+     * @throws IOException ファイル読み込みエラー
+     * @see VerifyResponse
+     */
+    @PostMapping("/inspect")
+    public VerifyResponse inspect(@RequestParam("image") MultipartFile image) throws IOException {
+        byte[] imageBytes = image.getBytes();
+        C2paManifest c2paManifest = c2paApiAdapter.inspect(imageBytes, image.getOriginalFilename());
+        RequestTimings timings = recordManifestCount(c2paManifest);
+        VerifyResponse response = timings.time("map", () -> verifyResponseMapper.toInspectionResponse(c2paManifest));
+        timings.time("trust", () -> trustEvaluator.annotate(response, c2paManifest));
+        publishVerified(timings, new ManifestVerifiedEvent(c2paManifest, response, false, imageBytes, null));
+        return response;
+    }
+
+    /**
+     * 低速リクエストのログに出力するため、マニフェスト数を記録します。
+     */
+    private static RequestTimings recordManifestCount(C2paManifest c2paManifest) {
+        RequestTimings timings = RequestTimings.current();
+        timings.attribute("manifestCount",
+                c2paManifest.getManifests() != null ? c2paManifest.getManifests().size() : 0);
+        return timings;
+    }
+
+    /**
+     * 検証結果を索引に登録するため、{@link ManifestVerifiedEvent}を発行します。
+     * <p>
+     * リスナーがレスポンスDTOを共有するため、信頼性の評価まで済ませてから発行します。
+     */
+    private void publishVerified(RequestTimings timings, ManifestVerifiedEvent event) {
+        long start = System.nanoTime();
+        eventPublisher.publishEvent(event);
+        timings.record("index", System.nanoTime() - start);
     }
 }
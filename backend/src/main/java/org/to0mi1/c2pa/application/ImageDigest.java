@@ -0,0 +1,30 @@
+package org.to0mi1.c2pa.application;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 画像データのSHA-256を求めるユーティリティ。
+ * <p>
+ * 検証リクエストごとに1回だけ求め、署名直後の事前検証の照会と検証結果の記録で共有します。
+ */
+public final class ImageDigest {
+
+    private ImageDigest() {
+    }
+
+    /**
+     * 画像データのSHA-256を返します。
+     *
+     * @param data 画像データ
+     * @return SHA-256（16進数表記）
+     */
+    public static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.to0mi1.c2pa.application;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.to0mi1.c2pa.application.dto.ProvenanceResponse;
+import org.to0mi1.c2pa.application.provenance.ProvenanceIndex;
+
+/**
+ * 検証済みのマニフェストから構築した来歴グラフを照会するコントローラー。
+ * <p>
+ * Core APIを呼び出さずにメモリ上の索引のみを参照するため、レート制限の対象外です。
+ */
+@RestController
+@RequestMapping(path = "/api/provenance")
+public class ProvenanceController {
+
+    private final ProvenanceIndex provenanceIndex;
+
+    public ProvenanceController(ProvenanceIndex provenanceIndex) {
+        this.provenanceIndex = provenanceIndex;
+    }
+
+    /**
+     * 指定したアセットの材料を、元素材の方向へたどります。
+     *
+     * @param id    マニフェストのラベル（URN）またはインスタンスID
+     * @param depth 探索の深さ
+     * @return 探索結果
+     */
+    @GetMapping("/ancestors")
+    public ProvenanceResponse ancestors(@RequestParam("id") String id,
+                                       @RequestParam(value = "depth", defaultValue = "64") int depth) {
+        return orNotFound(provenanceIndex.ancestors(id, depth), id);
+    }
+
+    /**
+     * 指定したアセットを材料とする派生物を、子孫の方向へたどります。
+     *
+     * @param id    マニフェストのラベル（URN）またはインスタンスID
+     * @param depth 探索の深さ
+     * @return 探索結果
+     */
+    @GetMapping("/descendants")
+    public ProvenanceResponse descendants(@RequestParam("id") String id,
+                                         @RequestParam(value = "depth", defaultValue = "64") int depth) {
+        return orNotFound(provenanceIndex.descendants(id, depth), id);
+    }
+
+    private static ProvenanceResponse orNotFound(ProvenanceResponse response, String id) {
+        if (response == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown asset: " + id);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,37 @@
+package org.to0mi1.c2pa.application;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.to0mi1.c2pa.application.dto.RecordQuery;
+import org.to0mi1.c2pa.application.dto.RecordQueryResponse;
+import org.to0mi1.c2pa.application.records.VerificationRecordIndex;
+
+/**
+ * 過去の検証結果を照会するコントローラー。
+ * <p>
+ * Core APIを呼び出さずにメモリ上の索引のみを参照するため、レート制限の対象外です。
+ */
+@RestController
+@RequestMapping(path = "/api/records")
+public class RecordController {
+
+    private final VerificationRecordIndex verificationRecordIndex;
+
+    public RecordController(VerificationRecordIndex verificationRecordIndex) {
+        this.verificationRecordIndex = verificationRecordIndex;
+    }
+
+    /**
+     * 条件に一致する過去の検証結果を、署名時刻の降順に返します。
+     * <p>
+     * 例: {@code GET /api/records?issuer=C2PA Test Signing Cert&signedFrom=2026-01-01T00:00:00Z&aiGenerativeTraining=notAllowed}
+     *
+     * @param query 照会条件
+     * @return 照会結果
+     */
+    @GetMapping
+    public RecordQueryResponse query(RecordQuery query) {
+        return verificationRecordIndex.query(query);
+    }
+}
@@ -0,0 +1,46 @@
+package org.to0mi1.c2pa.application;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.to0mi1.c2pa.application.dto.SoftBindingLookupResponse;
+import org.to0mi1.c2pa.application.softbinding.SoftBindingIndex;
+
+import java.io.IOException;
+
+/**
+ * C2PAマニフェストを持たない画像の来歴を、知覚ハッシュの近似一致で照会するコントローラー。
+ * <p>
+ * Core APIは呼び出さず、過去に検証に成功した画像の索引のみを参照します。
+ */
+@RestController
+@RequestMapping(path = "/api/c2pa")
+public class SoftBindingController {
+
+    private final SoftBindingIndex softBindingIndex;
+
+    public SoftBindingController(SoftBindingIndex softBindingIndex) {
+        this.softBindingIndex = softBindingIndex;
+    }
+
+    /**
+     * 画像の近似重複を過去の検証結果から探します。
+     *
+     * @param image 照会する画像ファイル
+     * @return 照会結果
+     * @throws IOException ファイル読み込みエラー
+     */
+    @PostMapping("/lookup")
+    public SoftBindingLookupResponse lookup(@RequestParam("image") MultipartFile image) throws IOException {
+        byte[] imageBytes = image.getBytes();
+        try {
+            return softBindingIndex.lookup(imageBytes);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unreadable image: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.to0mi1.c2pa.application;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.to0mi1.c2pa.application.admission.UploadAdmissionProperties;
+import org.to0mi1.c2pa.application.idempotency.IdempotencyProperties;
+import org.to0mi1.c2pa.application.postsign.PostSignVerifyProperties;
+import org.to0mi1.c2pa.application.provenance.ProvenanceProperties;
+import org.to0mi1.c2pa.application.ratelimit.ClientRateLimitInterceptor;
+import org.to0mi1.c2pa.application.ratelimit.RateLimitProperties;
+import org.to0mi1.c2pa.application.records.RecordsProperties;
+import org.to0mi1.c2pa.application.softbinding.SoftBindingProperties;
+import org.to0mi1.c2pa.application.trust.TrustProperties;
+
+@Configuration
+@EnableConfigurationProperties({RateLimitProperties.class, IdempotencyProperties.class, UploadAdmissionProperties.class,
+        ProvenanceProperties.class, RecordsProperties.class, TrustProperties.class, PostSignVerifyProperties.class,
+        SoftBindingProperties.class})
+@ImportRuntimeHints(ApplicationRuntimeHints.class)
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RateLimitProperties rateLimitProperties;
+    private final ClientRateLimitInterceptor clientRateLimitInterceptor;
+
+    public WebConfig(RateLimitProperties rateLimitProperties, ClientRateLimitInterceptor clientRateLimitInterceptor) {
+        this.rateLimitProperties = rateLimitProperties;
+        this.clientRateLimitInterceptor = clientRateLimitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (rateLimitProperties.isEnabled()) {
+            registry.addInterceptor(clientRateLimitInterceptor).addPathPatterns("/api/c2pa/**");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.to0mi1.c2pa.application.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * マルチパートのアップロードを、本文の読み取り前に全体のメモリ予算と照合する受け入れ制御フィルター。
+ * <p>
+ * {@code max-file-size}はリクエスト単体の上限でしかないため、大きなアップロードが同時に届くと
+ * 合計のバッファがヒープを使い切ります。このフィルターは、リクエストが宣言した{@code Content-Length}
+ * （不明な場合は{@code max-request-size}）を{@link UploadMemoryBudget}から確保してから後続に渡し、
+ * 応答の完了時に返却します。
+ * <ul>
+ *   <li>予算全体を超えるサイズのリクエストは413で即座に拒否します。</li>
+ *   <li>空きを待つ時間が{@code max-wait}を超えた場合は503を返します。</li>
+ * </ul>
+ * 本文を解析する{@link org.to0mi1.c2pa.timing.StageTimingFilter}より前に実行されます。
+ *
+ * @see UploadAdmissionProperties
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private final UploadAdmissionProperties properties;
+    private final long maxRequestSize;
+    private final UploadMemoryBudget budget;
+    private final Counter rejectedTooLarge;
+    private final Counter rejectedBusy;
+
+    public UploadAdmissionFilter(UploadAdmissionProperties properties, UploadMemoryBudget budget,
+                                 @Value("${spring.servlet.multipart.max-request-size:100MB}") DataSize maxRequestSize,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.maxRequestSize = maxRequestSize.toBytes();
+        this.budget = budget;
+        this.rejectedTooLarge = Counter.builder("c2pa.upload.rejected")
+                .tag("reason", "too-large")
+                .register(meterRegistry);
+        this.rejectedBusy = Counter.builder("c2pa.upload.rejected")
+                .tag("reason", "busy")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        String contentType = request.getContentType();
+        return contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // 宣言されたサイズが上限を超える場合は、後続のマルチパート解析がサイズ超過として拒否するため上限分だけ確保する
+        long declared = request.getContentLengthLong();
+        long bytes = declared < 0 ? maxRequestSize : Math.min(declared, maxRequestSize);
+        if (budget.exceedsCapacity(bytes)) {
+            rejectedTooLarge.increment();
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "Upload exceeds the in-flight memory budget");
+            return;
+        }
+
+        int reserved;
+        try {
+            reserved = budget.tryReserve(bytes, properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reserved = 0;
+        }
+        if (reserved == 0) {
+            rejectedBusy.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many uploads in flight");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            budget.release(reserved);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.to0mi1.c2pa.application.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * アップロードの受け入れ制御の設定。
+ * <p>
+ * {@code c2pa.upload-admission}プレフィックスで設定します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.upload-admission")
+public class UploadAdmissionProperties {
+
+    /**
+     * 受け入れ制御を有効にするかどうか。
+     * <p>
+     * 無効にした場合もリクエストの本文を確保しなくなるだけで、応答後も画像データを保持する処理は
+     * {@link #maxInFlightSize}の範囲で確保します。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 同時に処理中のアップロードの合計サイズの上限。
+     * <p>
+     * 本文の解析・Core APIへの転送・応答までの間、リクエストごとに宣言されたサイズを確保します。
+     * 次の処理も同じ予算から確保するため、画像データが占有するメモリの合計はこの値を超えません。
+     * <ul>
+     *   <li>署名直後の事前検証の検証待ちの画像（{@code c2pa.post-sign-verify}）</li>
+     *   <li>知覚ハッシュの算出待ちの画像（{@code c2pa.soft-binding}）</li>
+     *   <li>冪等性キーごとに保持する署名結果（{@code c2pa.idempotency.max-retained-size}まで）</li>
+     * </ul>
+     * 署名結果は保持期間の間確保し続けるため、{@code max-retained-size}はこの値より十分小さくします。
+     */
+    private DataSize maxInFlightSize = DataSize.ofMegabytes(512);
+
+    /**
+     * 上限に達している場合に、空きを待つ最大時間。超えた場合は503を返します。
+     */
+    private Duration maxWait = Duration.ofSeconds(2);
+}
@@ -0,0 +1,91 @@
+package org.to0mi1.c2pa.application.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 処理中のアップロードが占有するメモリの合計を制限する予算。
+ * <p>
+ * 1KiBを1許可とする公平なセマフォで管理します。公平性により、大きなアップロードが
+ * 後続の小さなアップロードに追い越され続けて待たされることはありません。
+ * <p>
+ * リクエストの本文に加えて、署名直後の事前検証のように応答後も画像データを保持する処理も
+ * {@link #tryReserve(long)}で同じ予算から確保します。こうした処理は空きがなければ待たずに省略します。
+ * <p>
+ * 確保中のバイト数と上限は{@code c2pa.upload.inflight.*}メトリクスとして公開されます。
+ *
+ * @see UploadAdmissionProperties#getMaxInFlightSize()
+ */
+@Component
+public class UploadMemoryBudget {
+
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    private final int totalPermits;
+    private final Semaphore permits;
+
+    public UploadMemoryBudget(UploadAdmissionProperties properties, MeterRegistry meterRegistry) {
+        long capacityBytes = properties.getMaxInFlightSize().toBytes();
+        this.totalPermits = (int) Math.min(Integer.MAX_VALUE, capacityBytes / BYTES_PER_PERMIT);
+        this.permits = new Semaphore(totalPermits, true);
+
+        Gauge.builder("c2pa.upload.inflight.bytes", permits,
+                        p -> (double) (totalPermits - p.availablePermits()) * BYTES_PER_PERMIT)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("c2pa.upload.inflight.max", () -> (double) totalPermits * BYTES_PER_PERMIT)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 指定したサイズが予算の上限を超えているかどうかを返します。
+     */
+    boolean exceedsCapacity(long bytes) {
+        return permitsFor(bytes) > totalPermits;
+    }
+
+    /**
+     * 指定したサイズを確保します。空きがない場合は最大で指定時間だけ待機します。
+     *
+     * @return 確保した許可数。確保できなかった場合は{@code 0}
+     */
+    int tryReserve(long bytes, long timeout, TimeUnit unit) throws InterruptedException {
+        int required = permitsFor(bytes);
+        return permits.tryAcquire(required, timeout, unit) ? required : 0;
+    }
+
+    /**
+     * 指定したサイズを待たずに確保します。公平性を保つため、空きを待っているリクエストがあれば確保しません。
+     *
+     * @param bytes 確保するサイズ
+     * @return 確保した許可数。確保できなかった場合は{@code 0}
+     */
+    public int tryReserve(long bytes) {
+        int required = permitsFor(bytes);
+        try {
+            return permits.tryAcquire(required, 0, TimeUnit.NANOSECONDS) ? required : 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    /**
+     * {@link #tryReserve}で確保した許可を返却します。
+     *
+     * @param reserved 確保した許可数
+     */
+    public void release(int reserved) {
+        permits.release(reserved);
+    }
+
+    private static int permitsFor(long bytes) {
+        long required = Math.max(1, (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT);
+        return (int) Math.min(Integer.MAX_VALUE, required);
+    }
+}
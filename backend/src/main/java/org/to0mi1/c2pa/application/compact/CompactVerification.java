@@ -0,0 +1,315 @@
+package org.to0mi1.c2pa.application.compact;
+
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+import org.to0mi1.c2pa.application.trust.TrustVerdict;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * メモリ上に長期間保持するための、{@link VerifyResponse}の圧縮表現。
+ * <p>
+ * アクティブなマニフェストを0番、署名履歴を1番以降の「エントリ」とし、項目ごとに平坦な配列へ格納します。
+ * <ul>
+ *   <li>署名者・発行者・アルゴリズム・クレーム生成元・AI学習の利用制限・アクション・デジタルソースタイプは、
+ *       {@link StringDictionary}の番号（辞書が上限に達していて登録できない値は、インスタンスごとの配列に保持し、
+ *       その位置を負の番号で表す）</li>
+ *   <li>信頼性の評価結果は{@link TrustVerdict}の序数</li>
+ *   <li>署名時刻はエポックミリ秒とUTCからのオフセット秒</li>
+ *   <li>ラベル・タイトル・制限の詳細など、検証結果ごとに異なる文字列のみそのまま保持</li>
+ * </ul>
+ * DTOのオブジェクトグラフ（エントリごとのBean・リスト・日時オブジェクト・重複した文字列）に比べ、
+ * 保持に必要なオブジェクト数とバイト数を大幅に減らします。署名時刻はミリ秒単位に、タイムゾーンはオフセットに丸められます。
+ * <p>
+ * インスタンスは不変で、スレッド間で共有できます。
+ *
+ * @see StringDictionary
+ */
+public final class CompactVerification {
+
+    private static final int LABEL = 0;
+    private static final int TITLE = 1;
+    private static final int AI_INFERENCE_CONSTRAINTS = 2;
+    private static final int AI_GENERATIVE_TRAINING_CONSTRAINTS = 3;
+    private static final int TEXTS_PER_ENTRY = 4;
+
+    private static final int SIGNER = 0;
+    private static final int ISSUER = 1;
+    private static final int ALGORITHM = 2;
+    private static final int CLAIM_GENERATOR = 3;
+    private static final int AI_INFERENCE_USE = 4;
+    private static final int AI_GENERATIVE_TRAINING_USE = 5;
+    private static final int TRUST = 6;
+    private static final int OFFSET_SECONDS = 7;
+    private static final int CODES_PER_ENTRY = 8;
+
+    private static final byte HAS_ACTIONS = 1;
+    private static final byte HAS_TRAINING_MINING = 1 << 1;
+    private static final byte HAS_AI_INFERENCE = 1 << 2;
+    private static final byte HAS_AI_GENERATIVE_TRAINING = 1 << 3;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int FIRST_OVERFLOW_CODE = StringDictionary.NOT_REGISTERED;
+    private static final TrustVerdict[] VERDICTS = TrustVerdict.values();
+
+    private final int validationState;
+    private final boolean bindingChecked;
+    private final boolean hasHistory;
+    private final byte[] flags;
+    private final String[] texts;
+    private final int[] codes;
+    private final long[] signedAt;
+    private final int[] actionStarts;
+    private final int[] actions;
+    private final String[] overflow;
+
+    private CompactVerification(int validationState, boolean bindingChecked, boolean hasHistory, byte[] flags,
+                                String[] texts, int[] codes, long[] signedAt, int[] actionStarts, int[] actions,
+                                String[] overflow) {
+        this.validationState = validationState;
+        this.bindingChecked = bindingChecked;
+        this.hasHistory = hasHistory;
+        this.flags = flags;
+        this.texts = texts;
+        this.codes = codes;
+        this.signedAt = signedAt;
+        this.actionStarts = actionStarts;
+        this.actions = actions;
+        this.overflow = overflow;
+    }
+
+    /**
+     * 検証結果を圧縮表現に変換します。
+     *
+     * @param response   検証結果
+     * @param dictionary 繰り返し現れる文字列の辞書
+     * @return 圧縮表現
+     */
+    public static CompactVerification encode(VerifyResponse response, StringDictionary dictionary) {
+        List<VerifyResponse.ManifestHistory> history = response.getHistory() != null ? response.getHistory() : List.of();
+        int entries = 1 + history.size();
+        byte[] flags = new byte[entries];
+        String[] texts = new String[entries * TEXTS_PER_ENTRY];
+        int[] codes = new int[entries * CODES_PER_ENTRY];
+        long[] signedAt = new long[entries];
+        int[] actionStarts = new int[entries + 1];
+        int actionCount = countActions(response.getActions());
+        for (VerifyResponse.ManifestHistory item : history) {
+            actionCount += countActions(item.getActions());
+        }
+        int[] actions = new int[actionCount * 2];
+
+        Encoder encoder = new Encoder(dictionary, flags, texts, codes, signedAt, actionStarts, actions);
+        encoder.entry(0, null, response.getTitle(), response.getSigner(), response.getIssuer(),
+                response.getAlgorithm(), null, response.getTrust(), response.getSignedAt(),
+                response.getActions(), response.getTrainingMining());
+        for (int i = 0; i < history.size(); i++) {
+            VerifyResponse.ManifestHistory item = history.get(i);
+            encoder.entry(i + 1, item.getLabel(), item.getTitle(), item.getSigner(), item.getIssuer(),
+                    item.getAlgorithm(), item.getClaimGenerator(), item.getTrust(), item.getSignedAt(),
+                    item.getActions(), item.getTrainingMining());
+        }
+        actionStarts[entries] = encoder.actionCursor / 2;
+        int validationState = encoder.code(response.getValidationState());
+
+        return new CompactVerification(validationState, response.isBindingChecked(),
+                response.getHistory() != null, flags, texts, codes, signedAt, actionStarts, actions,
+                encoder.overflow.isEmpty() ? null : encoder.overflow.toArray(String[]::new));
+    }
+
+    /**
+     * 圧縮表現から検証結果を復元します。
+     *
+     * @param dictionary 変換時に使用した辞書
+     * @return 検証結果
+     */
+    public VerifyResponse decode(StringDictionary dictionary) {
+        VerifyResponse response = new VerifyResponse();
+        response.setTitle(texts[TITLE]);
+        response.setSigner(string(codes[SIGNER], dictionary));
+        response.setIssuer(string(codes[ISSUER], dictionary));
+        response.setAlgorithm(string(codes[ALGORITHM], dictionary));
+        response.setSignedAt(signedAt(0));
+        response.setTrust(trust(0));
+        response.setActions(actions(0, dictionary));
+        response.setTrainingMining(trainingMining(0, dictionary));
+        response.setValidationState(string(validationState, dictionary));
+        response.setBindingChecked(bindingChecked);
+
+        if (hasHistory) {
+            List<VerifyResponse.ManifestHistory> history = new ArrayList<>(flags.length - 1);
+            for (int entry = 1; entry < flags.length; entry++) {
+                int base = entry * CODES_PER_ENTRY;
+                VerifyResponse.ManifestHistory item = new VerifyResponse.ManifestHistory();
+                item.setLabel(texts[entry * TEXTS_PER_ENTRY + LABEL]);
+                item.setTitle(texts[entry * TEXTS_PER_ENTRY + TITLE]);
+                item.setSigner(string(codes[base + SIGNER], dictionary));
+                item.setIssuer(string(codes[base + ISSUER], dictionary));
+                item.setAlgorithm(string(codes[base + ALGORITHM], dictionary));
+                item.setClaimGenerator(string(codes[base + CLAIM_GENERATOR], dictionary));
+                item.setSignedAt(signedAt(entry));
+                item.setTrust(trust(entry));
+                item.setActions(actions(entry, dictionary));
+                item.setTrainingMining(trainingMining(entry, dictionary));
+                history.add(item);
+            }
+            response.setHistory(history);
+        }
+        return response;
+    }
+
+    /**
+     * 番号を文字列に戻します。辞書に登録できなかった値は、インスタンスごとの配列から取り出します。
+     */
+    private String string(int code, StringDictionary dictionary) {
+        return code <= FIRST_OVERFLOW_CODE ? overflow[FIRST_OVERFLOW_CODE - code] : dictionary.get(code);
+    }
+
+    private ZonedDateTime signedAt(int entry) {
+        if (signedAt[entry] == NO_TIME) {
+            return null;
+        }
+        return Instant.ofEpochMilli(signedAt[entry])
+                .atZone(ZoneOffset.ofTotalSeconds(codes[entry * CODES_PER_ENTRY + OFFSET_SECONDS]));
+    }
+
+    private TrustVerdict trust(int entry) {
+        int ordinal = codes[entry * CODES_PER_ENTRY + TRUST];
+        return ordinal < 0 ? null : VERDICTS[ordinal];
+    }
+
+    private List<VerifyResponse.ActionInfo> actions(int entry, StringDictionary dictionary) {
+        if ((flags[entry] & HAS_ACTIONS) == 0) {
+            return null;
+        }
+        List<VerifyResponse.ActionInfo> result = new ArrayList<>(actionStarts[entry + 1] - actionStarts[entry]);
+        for (int i = actionStarts[entry]; i < actionStarts[entry + 1]; i++) {
+            VerifyResponse.ActionInfo action = new VerifyResponse.ActionInfo();
+            action.setAction(string(actions[i * 2], dictionary));
+            action.setDigitalSourceType(string(actions[i * 2 + 1], dictionary));
+            result.add(action);
+        }
+        return result;
+    }
+
+    private VerifyResponse.TrainingMiningInfo trainingMining(int entry, StringDictionary dictionary) {
+        if ((flags[entry] & HAS_TRAINING_MINING) == 0) {
+            return null;
+        }
+        VerifyResponse.TrainingMiningInfo info = new VerifyResponse.TrainingMiningInfo();
+        if ((flags[entry] & HAS_AI_INFERENCE) != 0) {
+            info.setAiInference(trainingMiningEntry(
+                    string(codes[entry * CODES_PER_ENTRY + AI_INFERENCE_USE], dictionary),
+                    texts[entry * TEXTS_PER_ENTRY + AI_INFERENCE_CONSTRAINTS]));
+        }
+        if ((flags[entry] & HAS_AI_GENERATIVE_TRAINING) != 0) {
+            info.setAiGenerativeTraining(trainingMiningEntry(
+                    string(codes[entry * CODES_PER_ENTRY + AI_GENERATIVE_TRAINING_USE], dictionary),
+                    texts[entry * TEXTS_PER_ENTRY + AI_GENERATIVE_TRAINING_CONSTRAINTS]));
+        }
+        return info;
+    }
+
+    private static VerifyResponse.TrainingMiningEntry trainingMiningEntry(String use, String constraintsInfo) {
+        VerifyResponse.TrainingMiningEntry entry = new VerifyResponse.TrainingMiningEntry();
+        entry.setUse(use);
+        entry.setConstraintsInfo(constraintsInfo);
+        return entry;
+    }
+
+    private static int countActions(List<VerifyResponse.ActionInfo> actions) {
+        return actions != null ? actions.size() : 0;
+    }
+
+    /**
+     * エントリを1件ずつ配列に書き込む。
+     */
+    private static final class Encoder {
+
+        private final StringDictionary dictionary;
+        private final byte[] flags;
+        private final String[] texts;
+        private final int[] codes;
+        private final long[] signedAt;
+        private final int[] actionStarts;
+        private final int[] actions;
+        private final List<String> overflow = new ArrayList<>();
+        private int actionCursor;
+
+        Encoder(StringDictionary dictionary, byte[] flags, String[] texts, int[] codes, long[] signedAt,
+                int[] actionStarts, int[] actions) {
+            this.dictionary = dictionary;
+            this.flags = flags;
+            this.texts = texts;
+            this.codes = codes;
+            this.signedAt = signedAt;
+            this.actionStarts = actionStarts;
+            this.actions = actions;
+        }
+
+        void entry(int entry, String label, String title, String signer, String issuer, String algorithm,
+                   String claimGenerator, TrustVerdict trust, ZonedDateTime time,
+                   List<VerifyResponse.ActionInfo> actionInfos, VerifyResponse.TrainingMiningInfo trainingMining) {
+            int textBase = entry * TEXTS_PER_ENTRY;
+            int codeBase = entry * CODES_PER_ENTRY;
+            byte entryFlags = 0;
+
+            texts[textBase + LABEL] = label;
+            texts[textBase + TITLE] = title;
+            codes[codeBase + SIGNER] = code(signer);
+            codes[codeBase + ISSUER] = code(issuer);
+            codes[codeBase + ALGORITHM] = code(algorithm);
+            codes[codeBase + CLAIM_GENERATOR] = code(claimGenerator);
+            codes[codeBase + TRUST] = trust != null ? trust.ordinal() : -1;
+            codes[codeBase + AI_INFERENCE_USE] = StringDictionary.NONE;
+            codes[codeBase + AI_GENERATIVE_TRAINING_USE] = StringDictionary.NONE;
+            if (time != null) {
+                signedAt[entry] = time.toInstant().toEpochMilli();
+                codes[codeBase + OFFSET_SECONDS] = time.getOffset().getTotalSeconds();
+            } else {
+                signedAt[entry] = NO_TIME;
+            }
+
+            actionStarts[entry] = actionCursor / 2;
+            if (actionInfos != null) {
+                entryFlags |= HAS_ACTIONS;
+                for (VerifyResponse.ActionInfo action : actionInfos) {
+                    actions[actionCursor++] = code(action.getAction());
+                    actions[actionCursor++] = code(action.getDigitalSourceType());
+                }
+            }
+
+            if (trainingMining != null) {
+                entryFlags |= HAS_TRAINING_MINING;
+                VerifyResponse.TrainingMiningEntry aiInference = trainingMining.getAiInference();
+                if (aiInference != null) {
+                    entryFlags |= HAS_AI_INFERENCE;
+                    codes[codeBase + AI_INFERENCE_USE] = code(aiInference.getUse());
+                    texts[textBase + AI_INFERENCE_CONSTRAINTS] = aiInference.getConstraintsInfo();
+                }
+                VerifyResponse.TrainingMiningEntry aiGenerativeTraining = trainingMining.getAiGenerativeTraining();
+                if (aiGenerativeTraining != null) {
+                    entryFlags |= HAS_AI_GENERATIVE_TRAINING;
+                    codes[codeBase + AI_GENERATIVE_TRAINING_USE] = code(aiGenerativeTraining.getUse());
+                    texts[textBase + AI_GENERATIVE_TRAINING_CONSTRAINTS] = aiGenerativeTraining.getConstraintsInfo();
+                }
+            }
+            flags[entry] = entryFlags;
+        }
+
+        /**
+         * 文字列の番号を返します。辞書に登録できない場合は、インスタンスごとの配列に追加して負の番号を返します。
+         */
+        int code(String value) {
+            int id = dictionary.id(value);
+            if (id != StringDictionary.NOT_REGISTERED) {
+                return id;
+            }
+            overflow.add(value);
+            return FIRST_OVERFLOW_CODE - (overflow.size() - 1);
+        }
+    }
+}
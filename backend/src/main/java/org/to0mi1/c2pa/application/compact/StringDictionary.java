@@ -0,0 +1,109 @@
+package org.to0mi1.c2pa.application.compact;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 検証結果に繰り返し現れる文字列を、連番の整数に対応付ける共有の辞書。
+ * <p>
+ * 発行者名・署名アルゴリズム・クレーム生成元・アクションのURI・IPTCのデジタルソースタイプなど、
+ * 多数の検証結果で同じ値を取る文字列を1つのインスタンスにまとめます。保持する側は文字列の代わりに
+ * 番号のみを保持できます。番号は辞書に追加した順に割り当てられ、削除はできません。
+ * <p>
+ * 登録する値は外部から送られた画像に由来するため、登録数には上限があります。上限に達した後の新しい値には番号を割り当てず、
+ * 保持する側がそのままの文字列で保持します。
+ * タイトルやマニフェストのラベルなど、検証結果ごとに異なる値は登録しないでください。
+ *
+ * @see CompactVerification
+ */
+@Component
+public class StringDictionary {
+
+    /**
+     * {@code null}を表す番号。
+     */
+    public static final int NONE = -1;
+
+    /**
+     * 辞書が上限に達していて、番号を割り当てられなかったことを表す番号。
+     */
+    public static final int NOT_REGISTERED = -2;
+
+    private final int maxEntries;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[256];
+    private int size;
+
+    public StringDictionary(@Value("${c2pa.dictionary.max-entries:65536}") int maxEntries,
+                            MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        Gauge.builder("c2pa.dictionary.size", this, StringDictionary::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 文字列の番号を返します。未登録の場合は、上限に達していなければ登録します。
+     *
+     * @param value 文字列
+     * @return 番号。{@code value}が{@code null}の場合は{@link #NONE}、上限により登録できない場合は{@link #NOT_REGISTERED}
+     */
+    public int id(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (size >= maxEntries) {
+                return NOT_REGISTERED;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            // 番号を公開する前に値を書き込み、番号を得たスレッドから必ず値が見えるようにする
+            values[size] = value;
+            ids.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * 番号に対応する文字列を返します。
+     *
+     * @param id 番号
+     * @return 文字列。{@code id}が{@link #NONE}の場合は{@code null}
+     */
+    public String get(int id) {
+        return id == NONE ? null : values[id];
+    }
+
+    /**
+     * 辞書に登録済みの同じ値のインスタンスを返します。未登録の場合は、上限に達していなければ登録します。
+     *
+     * @param value 文字列
+     * @return 辞書が保持するインスタンス。上限により登録できない場合は{@code value}
+     */
+    public String intern(String value) {
+        int id = id(value);
+        return id == NOT_REGISTERED ? value : get(id);
+    }
+
+    /**
+     * 登録済みの文字列の数を返します。
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,85 @@
+package org.to0mi1.c2pa.application.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 来歴グラフの探索結果のレスポンスDTO。
+ * <p>
+ * 起点となるアセットから、祖先または子孫の方向にたどったノードと関係を返します。
+ */
+@Data
+public class ProvenanceResponse {
+
+    /**
+     * 探索の起点（マニフェストのラベルまたはインスタンスID）。
+     */
+    private String root;
+
+    /**
+     * 探索で到達したノードのリスト（起点を含む、深さ順）。
+     */
+    private List<Node> nodes;
+
+    /**
+     * 探索で通過した関係のリスト。
+     */
+    private List<Edge> edges;
+
+    /**
+     * 探索の深さの上限に達し、さらに先のノードが存在するかどうか。
+     */
+    private boolean truncated;
+
+    /**
+     * 来歴グラフのノード（アセット）。
+     */
+    @Data
+    public static class Node {
+
+        /**
+         * マニフェストのラベル（URN）。マニフェストを持たない材料の場合は{@code null}。
+         */
+        private String label;
+
+        /**
+         * インスタンスID。
+         */
+        private String instanceId;
+
+        /**
+         * タイトル。
+         */
+        private String title;
+
+        /**
+         * 起点からの距離。
+         */
+        private int depth;
+    }
+
+    /**
+     * 来歴グラフの関係（材料から派生物への辺）。
+     */
+    @Data
+    public static class Edge {
+
+        /**
+         * 派生したアセット（マニフェストのラベルまたはインスタンスID）。
+         */
+        private String child;
+
+        /**
+         * 材料となったアセット（マニフェストのラベルまたはインスタンスID）。
+         */
+        private String parent;
+
+        /**
+         * 関係の種類。
+         * <p>
+         * 可能な値: {@code "parentOf"}, {@code "componentOf"}, {@code "inputTo"}
+         */
+        private String relationship;
+    }
+}
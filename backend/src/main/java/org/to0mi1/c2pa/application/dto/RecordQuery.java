@@ -0,0 +1,64 @@
+package org.to0mi1.c2pa.application.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 過去の検証結果の照会条件。
+ * <p>
+ * 指定したすべての条件を満たすレコードを返します。未指定の条件は絞り込みに使用しません。
+ */
+@Data
+public class RecordQuery {
+
+    /**
+     * 証明書の発行者（完全一致）。
+     */
+    private String issuer;
+
+    /**
+     * 署名者の名前（コモンネーム、完全一致）。
+     */
+    private String signer;
+
+    /**
+     * 署名アルゴリズム（完全一致）。
+     */
+    private String algorithm;
+
+    /**
+     * 署名時刻の下限（この時刻を含む）。
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime signedFrom;
+
+    /**
+     * 署名時刻の上限（この時刻を含む）。
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime signedTo;
+
+    /**
+     * AI推論（c2pa.ai_inference）の利用制限（allowed, notAllowed, constrained）。
+     */
+    private String aiInference;
+
+    /**
+     * AI生成学習（c2pa.ai_generative_training）の利用制限（allowed, notAllowed, constrained）。
+     */
+    private String aiGenerativeTraining;
+
+    /**
+     * 検証状態。
+     * <p>
+     * 可能な値: {@code "Valid"}, {@code "Trusted"}, {@code "Invalid"}
+     */
+    private String validationState;
+
+    /**
+     * 返すレコード数の上限。
+     */
+    private int limit = 100;
+}
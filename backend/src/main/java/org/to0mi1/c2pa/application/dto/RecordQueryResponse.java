@@ -0,0 +1,80 @@
+package org.to0mi1.c2pa.application.dto;
+
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * 過去の検証結果の照会結果のレスポンスDTO。
+ */
+@Data
+public class RecordQueryResponse {
+
+    /**
+     * 条件に一致したレコードの総数。
+     */
+    private long total;
+
+    /**
+     * 条件に一致したレコード（署名時刻の降順、最大{@code limit}件）。
+     */
+    private List<Record> records;
+
+    /**
+     * 検証結果のレコード。
+     * <p>
+     * アクティブなマニフェストごとに1件記録され、再検証された場合は検証状態のみ更新されます。
+     */
+    @Data
+    public static class Record {
+
+        /**
+         * アクティブなマニフェストのラベル（URN）。
+         */
+        private String label;
+
+        /**
+         * マニフェストのタイトル。
+         */
+        private String title;
+
+        /**
+         * 署名者の名前（コモンネーム）。
+         */
+        private String signer;
+
+        /**
+         * 証明書の発行者。
+         */
+        private String issuer;
+
+        /**
+         * 署名アルゴリズム。
+         */
+        private String algorithm;
+
+        /**
+         * 署名時刻。
+         */
+        private ZonedDateTime signedAt;
+
+        /**
+         * AI推論（c2pa.ai_inference）の利用制限。
+         */
+        private String aiInference;
+
+        /**
+         * AI生成学習（c2pa.ai_generative_training）の利用制限。
+         */
+        private String aiGenerativeTraining;
+
+        /**
+         * 検証状態。
+         * <p>
+         * 同じマニフェストでも画像の内容が異なる複製（改変された複製など）は別のレコードとして記録され、
+         * それぞれの検証状態を持ちます。
+         */
+        private String validationState;
+    }
+}
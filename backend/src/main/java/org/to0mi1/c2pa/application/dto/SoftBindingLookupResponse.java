@@ -0,0 +1,41 @@
+package org.to0mi1.c2pa.application.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 知覚ハッシュによる来歴の照会結果のレスポンスDTO。
+ * <p>
+ * C2PAマニフェストが除去された画像から、過去に検証した近似重複の画像とその検証結果を返します。
+ */
+@Data
+public class SoftBindingLookupResponse {
+
+    /**
+     * 照会した画像の知覚ハッシュ（16進数表記）。
+     */
+    private String perceptualHash;
+
+    /**
+     * 近似重複の候補（ハミング距離の昇順）。
+     */
+    private List<Match> matches;
+
+    /**
+     * 近似重複の候補。
+     */
+    @Data
+    public static class Match {
+
+        /**
+         * 知覚ハッシュのハミング距離。小さいほど似ています。
+         */
+        private int distance;
+
+        /**
+         * 候補の画像を検証したときの結果。
+         */
+        private VerifyResponse verification;
+    }
+}
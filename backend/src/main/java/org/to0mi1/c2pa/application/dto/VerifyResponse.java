@@ -1,6 +1,7 @@
 package org.to0mi1.c2pa.application.dto;
 
 import lombok.Data;
+import org.to0mi1.c2pa.application.trust.TrustVerdict;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -47,10 +48,26 @@ public class VerifyResponse {
     /**
      * 検証状態。
      * <p>
-     * 可能な値: {@code "Valid"}, {@code "Invalid"}
+     * 可能な値: {@code "Valid"}, {@code "Trusted"}, {@code "Invalid"}、
+     * 検査（{@code bindingChecked}が{@code false}）の場合はさらに{@code "BindingNotChecked"}
      */
     private String validationState;
 
+    /**
+     * ハードバインディング（画素データのハッシュ）を検証したかどうか。
+     * <p>
+     * マニフェストのみを読み取る検査モードでは{@code false}となり、
+     * 画像がマニフェストの署名後に改変されていないことは保証されません。
+     */
+    private boolean bindingChecked;
+
+    /**
+     * 署名証明書の信頼性の評価結果。
+     * <p>
+     * 信頼リスト・失効リストとの照合結果です。評価が無効な場合は{@code null}となります。
+     */
+    private TrustVerdict trust;
+
     /**
      * 過去の署名履歴のリスト。
      * <p>
@@ -155,6 +172,11 @@ public class VerifyResponse {
          */
         private String algorithm;
 
+        /**
+         * 署名証明書の信頼性の評価結果。
+         */
+        private TrustVerdict trust;
+
         /**
          * 実行されたアクションのリスト。
          */
@@ -0,0 +1,23 @@
+package org.to0mi1.c2pa.application.event;
+
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+import org.to0mi1.c2pa.core.model.C2paManifest;
+
+/**
+ * C2PAマニフェストの検証が完了したことを通知するイベント。
+ * <p>
+ * 検証・検査のたびにコントローラーが発行し、来歴グラフなどの索引が{@code @EventListener}で受け取ります。
+ * リスナーは応答を返すスレッドで同期的に呼び出されるため、重い処理を行ってはいけません。
+ * <p>
+ * {@code response}はクライアントに返すものと同じインスタンスです。変換を繰り返さないようリスナーはこれを使用し、
+ * 変更してはいけません。
+ *
+ * @param manifest       検証結果
+ * @param response       検証結果を変換したレスポンスDTO（信頼性の評価を含む）
+ * @param bindingChecked ハードバインディングを検証したかどうか（検査モードでは{@code false}）
+ * @param image          検証した画像データ
+ * @param imageSha256    検証した画像データのSHA-256（16進数表記）。検査モードでは{@code null}
+ */
+public record ManifestVerifiedEvent(C2paManifest manifest, VerifyResponse response, boolean bindingChecked,
+                                    byte[] image, String imageSha256) {
+}
@@ -0,0 +1,15 @@
+package org.to0mi1.c2pa.application.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 同じ冪等性キーの署名が処理中のまま、待ち時間の上限を過ぎたことを示す例外。
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException() {
+        super("A request with this Idempotency-Key is still being processed");
+    }
+}
@@ -0,0 +1,15 @@
+package org.to0mi1.c2pa.application.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 同じ冪等性キーで、異なる画像またはパラメーターの署名が要求されたことを示す例外。
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyMismatchException extends RuntimeException {
+
+    public IdempotencyKeyMismatchException() {
+        super("Idempotency-Key was already used with a different request");
+    }
+}
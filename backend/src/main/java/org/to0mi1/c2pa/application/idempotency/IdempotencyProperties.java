@@ -0,0 +1,36 @@
+package org.to0mi1.c2pa.application.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 署名リクエストの冪等性キーの設定。
+ * <p>
+ * {@code c2pa.idempotency}プレフィックスで設定します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * 署名結果を保持する期間。
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * 同じキーの署名が処理中の場合に、その完了を待つ時間の上限。超過した場合は409を返します。
+     */
+    private Duration waitTimeout = Duration.ofMinutes(3);
+
+    /**
+     * 保持する署名結果の合計サイズの上限。
+     * <p>
+     * 上限を超える場合、実行中のリクエストの重複排除のみを行い、完了後の結果は保持しません。
+     * 保持する結果はアップロードのメモリ予算（{@code c2pa.upload-admission.max-in-flight-size}）からも確保するため、
+     * 予算の大部分をアップロードの処理に残せる大きさにします。
+     */
+    private DataSize maxRetainedSize = DataSize.ofMegabytes(128);
+}
@@ -0,0 +1,205 @@
+package org.to0mi1.c2pa.application.idempotency;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.to0mi1.c2pa.application.admission.UploadMemoryBudget;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 冪等性キーごとに署名結果を保持し、クライアントの再試行による重複署名を防ぐストア。
+ * <p>
+ * 同じクライアントから同じキーと同じリクエスト内容（フィンガープリント）で再度署名が要求された場合、
+ * 署名中であればその完了を待ち、署名済みであれば保持している結果をそのまま返します。
+ * 署名とTSAによるタイムスタンプの取得は最も高コストな処理のため、再試行のたびに行わないようにします。
+ * キーはクライアントごとに区別するため、他のクライアントのキーで署名結果を取得したり、署名を妨げたりすることはできません。
+ * <p>
+ * 保持する署名結果は{@link IdempotencyProperties#getMaxRetainedSize()}に加えて{@link UploadMemoryBudget}からも確保し、
+ * アップロードの処理に必要なメモリを圧迫しないようにします。どちらかに空きがなければ結果を保持しません。
+ * <p>
+ * 署名に失敗した場合は（{@link Error}を含め）結果を保持せず、次の再試行で改めて署名します。
+ * 処理中の署名を待つ時間には上限があり、超過した場合は{@link IdempotencyKeyInProgressException}とします。
+ *
+ * @see IdempotencyProperties
+ */
+@Component
+public class SignIdempotencyStore {
+
+    private final long ttlNanos;
+    private final long waitTimeoutNanos;
+    private final long maxRetainedBytes;
+    private final UploadMemoryBudget memoryBudget;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    public SignIdempotencyStore(IdempotencyProperties properties, UploadMemoryBudget memoryBudget) {
+        this.ttlNanos = properties.getTtl().toNanos();
+        this.waitTimeoutNanos = properties.getWaitTimeout().toNanos();
+        this.maxRetainedBytes = properties.getMaxRetainedSize().toBytes();
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * 署名リクエストの内容からフィンガープリントを算出します。
+     *
+     * @param image      署名対象の画像データ
+     * @param parameters 署名パラメーター（{@code null}を含んでもよい）
+     * @return SHA-256による16進数表記のフィンガープリント
+     */
+    public static String fingerprint(byte[] image, String... parameters) {
+        MessageDigest digest = sha256();
+        for (String parameter : parameters) {
+            if (parameter == null) {
+                digest.update((byte) 0);
+            } else {
+                digest.update((byte) 1);
+                byte[] bytes = parameter.getBytes(StandardCharsets.UTF_8);
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+        }
+        digest.update(image);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 冪等性キーに対応する署名結果を返します。結果がなければ署名を実行して保持します。
+     *
+     * @param clientId       リクエストの送信元クライアントの識別子
+     * @param idempotencyKey 冪等性キー
+     * @param fingerprint    リクエスト内容のフィンガープリント
+     * @param signer         署名処理
+     * @return 署名済み画像のバイト配列
+     * @throws IdempotencyKeyMismatchException   同じキーが異なるリクエスト内容で使用されている場合
+     * @throws IdempotencyKeyInProgressException 同じキーの署名が待ち時間の上限を過ぎても完了しない場合
+     */
+    public byte[] execute(String clientId, String idempotencyKey, String fingerprint, Supplier<byte[]> signer) {
+        String key = clientId + '\n' + idempotencyKey;
+        long now = System.nanoTime();
+        Entry created = new Entry(fingerprint);
+        Entry entry = entries.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return created;
+            }
+            if (existing.isExpired(now)) {
+                discard(existing);
+                return created;
+            }
+            return existing;
+        });
+
+        if (entry != created) {
+            if (!entry.fingerprint.equals(fingerprint)) {
+                throw new IdempotencyKeyMismatchException();
+            }
+            return await(entry);
+        }
+
+        byte[] signed;
+        try {
+            signed = signer.get();
+        } catch (Throwable t) {
+            // 例外の種類によらず処理中のまま残さず、待機中のリクエストにも失敗を伝える
+            entries.remove(key, entry);
+            entry.result.completeExceptionally(t);
+            throw t;
+        }
+        entry.result.complete(signed);
+        retain(key, entry, signed.length);
+        return signed;
+    }
+
+    /**
+     * 保持期間を過ぎた署名結果を破棄します。
+     */
+    @Scheduled(fixedDelayString = "PT30S")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        entries.forEach((key, entry) -> {
+            if (entry.isExpired(now) && entries.remove(key, entry)) {
+                discard(entry);
+            }
+        });
+    }
+
+    private void retain(String key, Entry entry, long size) {
+        if (retainedBytes.addAndGet(size) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-size);
+            entries.remove(key, entry);
+            return;
+        }
+        int reserved = memoryBudget.tryReserve(size);
+        if (reserved == 0) {
+            retainedBytes.addAndGet(-size);
+            entries.remove(key, entry);
+            return;
+        }
+        entry.size = size;
+        entry.reserved = reserved;
+        entry.expiresAtNanos = System.nanoTime() + ttlNanos;
+    }
+
+    /**
+     * 期限切れで取り除いた署名結果のサイズと、メモリ予算から確保した分を返却します。
+     */
+    private void discard(Entry entry) {
+        retainedBytes.addAndGet(-entry.size);
+        memoryBudget.release(entry.reserved);
+    }
+
+    private byte[] await(Entry entry) {
+        try {
+            return entry.result.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for signing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String fingerprint;
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private volatile long size;
+        private volatile int reserved;
+        /**
+         * 署名中は期限切れにしないため、完了するまでは{@link Long#MAX_VALUE}とします。
+         */
+        private volatile long expiresAtNanos = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return expiresAtNanos != Long.MAX_VALUE && expiresAtNanos - nowNanos <= 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.to0mi1.c2pa.application.mapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.to0mi1.c2pa.core.model.C2paManifest;
+import org.to0mi1.c2pa.core.model.Manifest;
+
+/**
+ * {@link C2paManifest}からレスポンスDTOへの変換を記録するJava Flight Recorderのイベント。
+ * <p>
+ * 来歴の長い画像で変換にかかる時間を、マニフェスト数・アサーション数と合わせて確認できます。
+ * 件数は記録が有効な場合にのみ数えます。
+ *
+ * @see VerifyResponseMapper
+ */
+@Name("org.to0mi1.c2pa.ManifestMapping")
+@Label("C2PA Manifest Mapping")
+@Category({"C2PA", "Mapping"})
+@Description("Conversion of a core API manifest store into a VerifyResponse")
+@StackTrace(false)
+final class ManifestMappingEvent extends Event {
+
+    @Label("Manifest Count")
+    int manifestCount;
+
+    @Label("Assertion Count")
+    int assertionCount;
+
+    /**
+     * 変換の完了を記録します。
+     */
+    void complete(C2paManifest c2paManifest) {
+        end();
+        if (shouldCommit()) {
+            if (c2paManifest.getManifests() != null) {
+                manifestCount = c2paManifest.getManifests().size();
+                for (Manifest manifest : c2paManifest.getManifests().values()) {
+                    if (manifest != null && manifest.getAssertions() != null) {
+                        assertionCount += manifest.getAssertions().size();
+                    }
+                }
+            }
+            commit();
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.to0mi1.c2pa.core.model.Action;
 import org.to0mi1.c2pa.core.model.Assertion;
 import org.to0mi1.c2pa.core.model.C2paManifest;
 import org.to0mi1.c2pa.core.model.Manifest;
+import org.to0mi1.c2pa.core.model.ValidationStates;
+import org.to0mi1.c2pa.core.model.ValidationStatus;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -25,16 +27,32 @@ public class VerifyResponseMapper {
 
     private static final String ACTIONS_LABEL = "c2pa.actions.v2";
     private static final String TRAINING_MINING_LABEL = "cawg.training-mining";
+    private static final List<String> HARD_BINDING_CODE_PREFIXES = List.of(
+            "assertion.dataHash.",
+            "assertion.boxesHash.",
+            "assertion.bmffHash."
+    );
 
     /**
      * {@link C2paManifest}を{@link VerifyResponse}に変換します。
+     * <p>
+     * 変換ごとに{@link ManifestMappingEvent}をJava Flight Recorderに記録します。
      *
      * @param c2paManifest C2PA検証結果
      * @return 変換されたレスポンスDTO
      */
     public VerifyResponse toVerifyResponse(C2paManifest c2paManifest) {
+        ManifestMappingEvent event = new ManifestMappingEvent();
+        event.begin();
+        VerifyResponse response = map(c2paManifest);
+        event.complete(c2paManifest);
+        return response;
+    }
+
+    private VerifyResponse map(C2paManifest c2paManifest) {
         VerifyResponse response = new VerifyResponse();
         response.setValidationState(c2paManifest.getValidationState());
+        response.setBindingChecked(true);
 
         if (c2paManifest.getActiveManifest() != null && c2paManifest.getManifests() != null) {
             Manifest activeManifest = c2paManifest.getManifests().get(c2paManifest.getActiveManifest());
@@ -49,6 +67,46 @@ public class VerifyResponseMapper {
         return response;
     }
 
+    /**
+     * ハードバインディング未検証の{@link C2paManifest}を{@link VerifyResponse}に変換します。
+     * <p>
+     * マニフェストのみを送信した場合、画素データのハッシュ検証は失敗するため、改変されていない画像でも
+     * Core APIの検証状態は{@code "Invalid"}となります。アクティブなマニフェストの失敗項目がハードバインディングに関するものだけであれば、
+     * 検証状態を{@value ValidationStates#BINDING_NOT_CHECKED}とし、署名に問題がないことと改変の有無を確認していないことを区別します。
+     * それ以外の失敗を含む場合はCore APIの検証状態をそのまま返します。
+     *
+     * @param c2paManifest マニフェストのみを対象としたC2PA検証結果
+     * @return 変換されたレスポンスDTO（{@code bindingChecked}は{@code false}）
+     */
+    public VerifyResponse toInspectionResponse(C2paManifest c2paManifest) {
+        VerifyResponse response = toVerifyResponse(c2paManifest);
+        response.setBindingChecked(false);
+        if (hasOnlyHardBindingFailures(c2paManifest)) {
+            response.setValidationState(ValidationStates.BINDING_NOT_CHECKED);
+        }
+        return response;
+    }
+
+    /**
+     * アクティブなマニフェストの失敗項目が、すべてハードバインディングに関するものかどうかを判定します。
+     *
+     * @param c2paManifest C2PA検証結果
+     * @return 失敗項目が1件以上あり、すべてハードバインディングに関するものであれば{@code true}
+     */
+    private boolean hasOnlyHardBindingFailures(C2paManifest c2paManifest) {
+        if (c2paManifest.getValidationResults() == null
+                || c2paManifest.getValidationResults().getActiveManifest() == null) {
+            return false;
+        }
+        List<ValidationStatus> failures = c2paManifest.getValidationResults().getActiveManifest().getFailure();
+        if (failures == null || failures.isEmpty()) {
+            return false;
+        }
+        return failures.stream()
+                .map(ValidationStatus::getCode)
+                .allMatch(code -> code != null && HARD_BINDING_CODE_PREFIXES.stream().anyMatch(code::startsWith));
+    }
+
     /**
      * アクティブなマニフェストの情報をレスポンスに設定します。
      *
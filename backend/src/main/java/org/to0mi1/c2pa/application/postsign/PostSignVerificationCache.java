@@ -0,0 +1,179 @@
+package org.to0mi1.c2pa.application.postsign;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.to0mi1.c2pa.application.ImageDigest;
+import org.to0mi1.c2pa.application.admission.UploadMemoryBudget;
+import org.to0mi1.c2pa.core.BulkheadFullException;
+import org.to0mi1.c2pa.core.C2paApiAdapter;
+import org.to0mi1.c2pa.core.model.C2paManifest;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 署名済み画像をリクエストの外で検証し、その結果を画像のハッシュ値ごとに保持するキャッシュ。
+ * <p>
+ * 画面からの利用では、署名の直後にその出力を検証することがほとんどです。
+ * 署名の完了時に{@link #submit}で検証を予約しておくと、同じ画像の検証リクエストは
+ * Core APIに画像を送り直さずに、保持している結果（実行中であればその完了）を使用します。
+ * <p>
+ * 事前検証はベストエフォートです。実行枠が埋まっている場合や検証に失敗した場合、
+ * 実行中の事前検証が{@link PostSignVerifyProperties#getWaitTimeout()}以内に完了しない場合は、通常の検証が行われます。
+ * <p>
+ * 検証待ちの画像データは{@link UploadMemoryBudget}から確保し、空きがなければ事前検証を行いません。
+ * また、リクエストによる検証の実行枠を奪わないよう、Core APIの検証の実行枠がすべて使用中であれば
+ * 予約の時点でも実行の時点でも事前検証を省略します。
+ * 保持件数と利用回数は{@code c2pa.post-sign-verify.*}メトリクスとして公開されます。
+ *
+ * @see PostSignVerifyProperties
+ */
+@Component
+public class PostSignVerificationCache {
+
+    private final PostSignVerifyProperties properties;
+    private final C2paApiAdapter c2paApiAdapter;
+    private final UploadMemoryBudget memoryBudget;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter skipped;
+
+    public PostSignVerificationCache(PostSignVerifyProperties properties, C2paApiAdapter c2paApiAdapter,
+                                     UploadMemoryBudget memoryBudget, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.c2paApiAdapter = c2paApiAdapter;
+        this.memoryBudget = memoryBudget;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("c2pa-post-sign-verify-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, properties.getMaxPending())),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("c2pa.post-sign-verify.entries", entries, ConcurrentMap::size)
+                .register(meterRegistry);
+        this.hits = Counter.builder("c2pa.post-sign-verify.hits")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("c2pa.post-sign-verify.skipped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 署名済み画像の検証を予約します。
+     *
+     * @param signedImage 署名済み画像
+     * @param fileName    ファイル名
+     */
+    public void submit(byte[] signedImage, String fileName) {
+        if (!properties.isEnabled() || entries.size() >= properties.getMaxEntries()) {
+            return;
+        }
+        if (c2paApiAdapter.isVerifySaturated()) {
+            skipped.increment();
+            return;
+        }
+        String hash = ImageDigest.sha256(signedImage);
+        Entry entry = new Entry();
+        if (entries.putIfAbsent(hash, entry) != null) {
+            return;
+        }
+        int reserved = memoryBudget.tryReserve(signedImage.length);
+        if (reserved == 0) {
+            entries.remove(hash, entry);
+            skipped.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    // 待機中に検証が混み合った場合は、リクエストによる検証に実行枠を譲る
+                    if (c2paApiAdapter.isVerifySaturated()) {
+                        skipped.increment();
+                        throw new BulkheadFullException("post-sign verify");
+                    }
+                    entry.result.complete(c2paApiAdapter.verify(signedImage, fileName));
+                    entry.expiresAtNanos = System.nanoTime() + properties.getTtl().toNanos();
+                } catch (Throwable e) {
+                    // 例外の種類によらず検証中のまま残さず、待機中の検証リクエストを通常の検証に戻す
+                    entries.remove(hash, entry);
+                    entry.result.completeExceptionally(e);
+                } finally {
+                    memoryBudget.release(reserved);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            memoryBudget.release(reserved);
+            entries.remove(hash, entry);
+            skipped.increment();
+        }
+    }
+
+    /**
+     * 画像の事前検証の結果を返します。検証中の場合は{@link PostSignVerifyProperties#getWaitTimeout()}まで完了を待ちます。
+     *
+     * @param imageSha256 検証対象の画像のSHA-256（{@link ImageDigest#sha256(byte[])}）
+     * @return 検証結果。事前検証が行われていない、失敗した、または待ち時間内に完了しなかった場合は{@code null}
+     */
+    public C2paManifest lookup(String imageSha256) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        Entry entry = entries.get(imageSha256);
+        if (entry == null || entry.isExpired(System.nanoTime())) {
+            return null;
+        }
+        try {
+            C2paManifest result = entry.result.get(properties.getWaitTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            hits.increment();
+            return result;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * 保持期間を過ぎた検証結果を破棄します。
+     */
+    @Scheduled(fixedDelayString = "PT30S")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        entries.forEach((key, entry) -> {
+            if (entry.isExpired(now)) {
+                entries.remove(key, entry);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<C2paManifest> result = new CompletableFuture<>();
+        /**
+         * 検証中は期限切れにしないため、完了するまでは{@link Long#MAX_VALUE}とします。
+         */
+        private volatile long expiresAtNanos = Long.MAX_VALUE;
+
+        private boolean isExpired(long nowNanos) {
+            return expiresAtNanos != Long.MAX_VALUE && expiresAtNanos - nowNanos <= 0;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.to0mi1.c2pa.application.postsign;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 署名直後の事前検証の設定。
+ * <p>
+ * {@code c2pa.post-sign-verify}プレフィックスで設定します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.post-sign-verify")
+public class PostSignVerifyProperties {
+
+    /**
+     * 署名済み画像を署名直後に検証し、結果を保持するかどうか。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 検証結果を保持する期間。
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * 検証リクエストが実行中の事前検証の完了を待つ時間の上限。超過した場合は通常の検証を行います。
+     */
+    private Duration waitTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 保持する検証結果の件数の上限。上限に達している間は事前検証を行いません。
+     */
+    private int maxEntries = 1000;
+
+    /**
+     * 事前検証を行うスレッド数。
+     */
+    private int workers = 2;
+
+    /**
+     * 実行待ちの事前検証の上限。超えた分は事前検証を行わず、通常の検証に任せます。
+     */
+    private int maxPending = 32;
+}
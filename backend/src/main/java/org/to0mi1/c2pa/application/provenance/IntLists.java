@@ -0,0 +1,61 @@
+package org.to0mi1.c2pa.application.provenance;
+
+import java.util.Arrays;
+
+/**
+ * ノード番号ごとに可変長の{@code int}リストを保持する隣接リスト。
+ * <p>
+ * 辺ごとにオブジェクトを作成しないため、数百万の辺でもヒープの消費とGCの負荷を抑えられます。
+ * スレッドセーフではありません。
+ */
+final class IntLists {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[][] lists = new int[0][];
+    private int[] sizes = new int[0];
+
+    void add(int node, int value) {
+        ensureCapacity(node + 1);
+        int[] list = lists[node];
+        int size = sizes[node];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, Math.max(2, size * 2));
+            lists[node] = list;
+        }
+        list[size] = value;
+        sizes[node] = size + 1;
+    }
+
+    boolean contains(int node, int value) {
+        if (node >= sizes.length) {
+            return false;
+        }
+        int[] list = lists[node];
+        for (int i = 0; i < sizes[node]; i++) {
+            if (list[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size(int node) {
+        return node < sizes.length ? sizes[node] : 0;
+    }
+
+    int get(int node, int index) {
+        return lists[node][index];
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= lists.length) {
+            return;
+        }
+        int capacity = Math.max(nodes, lists.length + (lists.length >> 1) + 16);
+        int from = lists.length;
+        lists = Arrays.copyOf(lists, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        Arrays.fill(lists, from, capacity, EMPTY);
+    }
+}
@@ -0,0 +1,377 @@
+package org.to0mi1.c2pa.application.provenance;
+
+import org.to0mi1.c2pa.application.dto.ProvenanceResponse;
+import org.to0mi1.c2pa.core.model.C2paManifest;
+import org.to0mi1.c2pa.core.model.Ingredient;
+import org.to0mi1.c2pa.core.model.Manifest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * マニフェストと材料の関係を保持する来歴グラフ。
+ * <p>
+ * アセットごとに連番のノード番号を割り当て、材料（親）と派生物（子）の隣接リストを
+ * {@code int}の配列で保持します。辺は{@code (ノード番号 << 2) | 関係の種類}の1つの{@code int}で表します。
+ * マニフェストのラベルとインスタンスIDは、どちらからでもノードを引けるよう同じ表に登録します。
+ * <p>
+ * 読み取りと書き込みは読み書きロックで保護され、複数のスレッドから安全に使用できます。
+ */
+final class ProvenanceGraph {
+
+    static final List<String> RELATIONSHIPS = List.of("parentOf", "componentOf", "inputTo");
+
+    private static final int RELATIONSHIP_BITS = 2;
+    private static final int RELATIONSHIP_MASK = (1 << RELATIONSHIP_BITS) - 1;
+    private static final int SNAPSHOT_MAGIC = 0x43325047;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final IntLists parents = new IntLists();
+    private final IntLists children = new IntLists();
+    private String[] labels = new String[16];
+    private String[] instanceIds = new String[16];
+    private String[] titles = new String[16];
+    private int nodeCount;
+    private long modificationCount;
+
+    /**
+     * 検証結果に含まれるすべてのマニフェストと、その材料との関係を登録します。
+     * <p>
+     * 登録によってノード数が上限を超えるおそれがある場合は、一部だけを登録することのないよう何も登録しません。
+     *
+     * @param c2paManifest 検証結果
+     * @param maxNodes     ノード数の上限
+     * @return 登録した場合、または登録するものがない場合は{@code true}。上限により登録しなかった場合は{@code false}
+     */
+    boolean record(C2paManifest c2paManifest, int maxNodes) {
+        if (c2paManifest.getManifests() == null) {
+            return true;
+        }
+        int maxNewNodes = 0;
+        for (Manifest manifest : c2paManifest.getManifests().values()) {
+            maxNewNodes += 1 + (manifest.getIngredients() != null ? manifest.getIngredients().size() : 0);
+        }
+        lock.writeLock().lock();
+        try {
+            if ((long) nodeCount + maxNewNodes > maxNodes) {
+                return false;
+            }
+            for (Map.Entry<String, Manifest> entry : c2paManifest.getManifests().entrySet()) {
+                Manifest manifest = entry.getValue();
+                String label = manifest.getLabel() != null ? manifest.getLabel() : entry.getKey();
+                int child = resolve(label, manifest.getInstanceId(), manifest.getTitle());
+                if (manifest.getIngredients() == null) {
+                    continue;
+                }
+                for (Ingredient ingredient : manifest.getIngredients()) {
+                    int relationship = RELATIONSHIPS.indexOf(ingredient.getRelationship());
+                    if (relationship < 0
+                            || (ingredient.getActiveManifest() == null && ingredient.getInstanceId() == null)) {
+                        continue;
+                    }
+                    int parent = resolve(ingredient.getActiveManifest(), ingredient.getInstanceId(), ingredient.getTitle());
+                    if (parent != child) {
+                        addEdge(child, parent, relationship);
+                    }
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 指定したアセットの材料を、元素材の方向へたどります。
+     *
+     * @param key      マニフェストのラベルまたはインスタンスID
+     * @param maxDepth 探索の深さの上限
+     * @return 探索結果。アセットが未登録の場合は{@code null}
+     */
+    ProvenanceResponse ancestors(String key, int maxDepth) {
+        return traverse(key, maxDepth, true);
+    }
+
+    /**
+     * 指定したアセットを材料とする派生物を、子孫の方向へたどります。
+     *
+     * @param key      マニフェストのラベルまたはインスタンスID
+     * @param maxDepth 探索の深さの上限
+     * @return 探索結果。アセットが未登録の場合は{@code null}
+     */
+    ProvenanceResponse descendants(String key, int maxDepth) {
+        return traverse(key, maxDepth, false);
+    }
+
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long modificationCount() {
+        lock.readLock().lock();
+        try {
+            return modificationCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * スナップショットとして書き出すため、現在のグラフを複製します。
+     * <p>
+     * 子の隣接リストは親の隣接リストから復元できるため、親の隣接リストのみを複製します。
+     * ロックを保持するのは複製の間のみで、書き出しはロックの外で行えます。
+     *
+     * @return グラフの複製
+     */
+    Snapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            int[] edgeStarts = new int[nodeCount + 1];
+            for (int node = 0; node < nodeCount; node++) {
+                edgeStarts[node + 1] = edgeStarts[node] + parents.size(node);
+            }
+            int[] edges = new int[edgeStarts[nodeCount]];
+            for (int node = 0; node < nodeCount; node++) {
+                for (int i = 0, size = parents.size(node); i < size; i++) {
+                    edges[edgeStarts[node] + i] = parents.get(node, i);
+                }
+            }
+            return new Snapshot(nodeCount, Arrays.copyOf(labels, nodeCount), Arrays.copyOf(instanceIds, nodeCount),
+                    Arrays.copyOf(titles, nodeCount), edgeStarts, edges, modificationCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * スナップショットからグラフを復元します。
+     */
+    static ProvenanceGraph readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Unsupported provenance snapshot format");
+        }
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported provenance snapshot version " + version);
+        }
+        ProvenanceGraph graph = new ProvenanceGraph();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int node = graph.newNode();
+            graph.register(node, readNullable(in), readNullable(in), readNullable(in));
+            int edges = in.readInt();
+            for (int e = 0; e < edges; e++) {
+                int edge = in.readInt();
+                graph.parents.add(node, edge);
+                graph.children.add(edge >>> RELATIONSHIP_BITS, (node << RELATIONSHIP_BITS) | (edge & RELATIONSHIP_MASK));
+            }
+        }
+        return graph;
+    }
+
+    private ProvenanceResponse traverse(String key, int maxDepth, boolean towardsParents) {
+        lock.readLock().lock();
+        try {
+            Integer root = ids.get(key);
+            if (root == null) {
+                return null;
+            }
+            IntLists adjacency = towardsParents ? parents : children;
+            List<ProvenanceResponse.Node> nodes = new ArrayList<>();
+            List<ProvenanceResponse.Edge> edges = new ArrayList<>();
+            boolean truncated = false;
+
+            BitSet visited = new BitSet(nodeCount);
+            int[] frontier = {root};
+            int frontierSize = 1;
+            visited.set(root);
+            nodes.add(toNode(root, 0));
+            for (int depth = 1; frontierSize > 0; depth++) {
+                int[] next = new int[Math.max(4, frontierSize * 2)];
+                int nextSize = 0;
+                for (int f = 0; f < frontierSize; f++) {
+                    int node = frontier[f];
+                    int degree = adjacency.size(node);
+                    if (degree > 0 && depth > maxDepth) {
+                        truncated = true;
+                        continue;
+                    }
+                    for (int i = 0; i < degree; i++) {
+                        int edge = adjacency.get(node, i);
+                        int neighbor = edge >>> RELATIONSHIP_BITS;
+                        String relationship = RELATIONSHIPS.get(edge & RELATIONSHIP_MASK);
+                        edges.add(towardsParents
+                                ? toEdge(node, neighbor, relationship)
+                                : toEdge(neighbor, node, relationship));
+                        if (!visited.get(neighbor)) {
+                            visited.set(neighbor);
+                            nodes.add(toNode(neighbor, depth));
+                            if (nextSize == next.length) {
+                                next = Arrays.copyOf(next, nextSize * 2);
+                            }
+                            next[nextSize++] = neighbor;
+                        }
+                    }
+                }
+                frontier = next;
+                frontierSize = nextSize;
+            }
+
+            ProvenanceResponse response = new ProvenanceResponse();
+            response.setRoot(key);
+            response.setNodes(nodes);
+            response.setEdges(edges);
+            response.setTruncated(truncated);
+            return response;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * アセットのノード番号を返します。未登録の場合は新しいノードを作成します。
+     * <p>
+     * ラベルで見つからない場合、インスタンスIDで登録済みのラベルを持たないノード
+     * （マニフェストを持たない材料として先に登録されたもの）があればそれを使用します。
+     */
+    private int resolve(String label, String instanceId, String title) {
+        Integer id = label != null ? ids.get(label) : null;
+        if (id == null && instanceId != null) {
+            Integer byInstance = ids.get(instanceId);
+            if (byInstance != null && (label == null || labels[byInstance] == null)) {
+                id = byInstance;
+            }
+        }
+        int node = id != null ? id : newNode();
+        register(node, label, instanceId, title);
+        return node;
+    }
+
+    private void register(int node, String label, String instanceId, String title) {
+        if (label != null && labels[node] == null) {
+            labels[node] = label;
+            ids.putIfAbsent(label, node);
+            modificationCount++;
+        }
+        if (instanceId != null && instanceIds[node] == null) {
+            instanceIds[node] = instanceId;
+            ids.putIfAbsent(instanceId, node);
+            modificationCount++;
+        }
+        if (title != null && titles[node] == null) {
+            titles[node] = title;
+            modificationCount++;
+        }
+    }
+
+    private int newNode() {
+        if (nodeCount == labels.length) {
+            int capacity = nodeCount + (nodeCount >> 1);
+            labels = Arrays.copyOf(labels, capacity);
+            instanceIds = Arrays.copyOf(instanceIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+        }
+        modificationCount++;
+        return nodeCount++;
+    }
+
+    private void addEdge(int child, int parent, int relationship) {
+        int parentEdge = (parent << RELATIONSHIP_BITS) | relationship;
+        if (parents.contains(child, parentEdge)) {
+            return;
+        }
+        parents.add(child, parentEdge);
+        children.add(parent, (child << RELATIONSHIP_BITS) | relationship);
+        modificationCount++;
+    }
+
+    private ProvenanceResponse.Node toNode(int node, int depth) {
+        ProvenanceResponse.Node result = new ProvenanceResponse.Node();
+        result.setLabel(labels[node]);
+        result.setInstanceId(instanceIds[node]);
+        result.setTitle(titles[node]);
+        result.setDepth(depth);
+        return result;
+    }
+
+    private ProvenanceResponse.Edge toEdge(int child, int parent, String relationship) {
+        ProvenanceResponse.Edge edge = new ProvenanceResponse.Edge();
+        edge.setChild(keyOf(child));
+        edge.setParent(keyOf(parent));
+        edge.setRelationship(relationship);
+        return edge;
+    }
+
+    private String keyOf(int node) {
+        return labels[node] != null ? labels[node] : instanceIds[node];
+    }
+
+    /**
+     * 文字列をUTF-8のバイト数（{@code null}の場合は{@code -1}）に続けて書き出します。
+     * {@link DataOutputStream#writeUTF(String)}と異なり、65535バイトを超える文字列も書き出せます。
+     */
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Truncated provenance snapshot");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * ある時点のグラフの複製。親の隣接リストは{@code edgeStarts}で区切った1つの配列で保持します。
+     */
+    record Snapshot(int nodeCount, String[] labels, String[] instanceIds, String[] titles,
+                    int[] edgeStarts, int[] edges, long modificationCount) {
+
+        /**
+         * 複製をスナップショットの形式で書き出します。
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(nodeCount);
+            for (int node = 0; node < nodeCount; node++) {
+                writeNullable(out, labels[node]);
+                writeNullable(out, instanceIds[node]);
+                writeNullable(out, titles[node]);
+                out.writeInt(edgeStarts[node + 1] - edgeStarts[node]);
+                for (int i = edgeStarts[node]; i < edgeStarts[node + 1]; i++) {
+                    out.writeInt(edges[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.to0mi1.c2pa.application.provenance;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.to0mi1.c2pa.application.dto.ProvenanceResponse;
+import org.to0mi1.c2pa.application.event.ManifestVerifiedEvent;
+import org.to0mi1.c2pa.core.model.ValidationStates;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 検証結果から来歴グラフを構築し、祖先・子孫の探索を提供する索引。
+ * <p>
+ * {@link ManifestVerifiedEvent}を受け取るたびに、マニフェストと材料の関係をグラフに登録します。
+ * 偽のマニフェストで来歴を汚されないよう、登録するのはハードバインディングまで検証して有効と判定された
+ * （検証状態が{@code "Valid"}または{@code "Trusted"}の）結果のみです。
+ * 保存先が設定されている場合、グラフは定期的にスナップショットとして保存され、起動時に復元されます。
+ * 登録済みのノード数は{@code c2pa.provenance.nodes}メトリクスとして公開されます。
+ *
+ * @see ProvenanceGraph
+ * @see ProvenanceProperties
+ */
+@Slf4j
+@Component
+public class ProvenanceIndex {
+
+    private final ProvenanceProperties properties;
+    private final ProvenanceGraph graph;
+    private long snapshotModificationCount;
+    private volatile boolean full;
+
+    public ProvenanceIndex(ProvenanceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.graph = properties.getSnapshotPath() != null ? load(properties.getSnapshotPath()) : new ProvenanceGraph();
+        this.snapshotModificationCount = graph.modificationCount();
+
+        Gauge.builder("c2pa.provenance.nodes", graph, ProvenanceGraph::nodeCount)
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onManifestVerified(ManifestVerifiedEvent event) {
+        if (!properties.isEnabled() || !event.bindingChecked()
+                || !ValidationStates.isSuccessful(event.manifest().getValidationState())) {
+            return;
+        }
+        if (!graph.record(event.manifest(), properties.getMaxNodes()) && !full) {
+            full = true;
+            log.warn("Provenance graph reached {} nodes, new results are no longer recorded", properties.getMaxNodes());
+        }
+    }
+
+    /**
+     * 指定したアセットの材料を、元素材の方向へたどります。
+     *
+     * @param key   マニフェストのラベルまたはインスタンスID
+     * @param depth 探索の深さ（設定された上限で制限されます）
+     * @return 探索結果。アセットが未登録の場合は{@code null}
+     */
+    public ProvenanceResponse ancestors(String key, int depth) {
+        return graph.ancestors(key, Math.min(depth, properties.getMaxDepth()));
+    }
+
+    /**
+     * 指定したアセットを材料とする派生物を、子孫の方向へたどります。
+     *
+     * @param key   マニフェストのラベルまたはインスタンスID
+     * @param depth 探索の深さ（設定された上限で制限されます）
+     * @return 探索結果。アセットが未登録の場合は{@code null}
+     */
+    public ProvenanceResponse descendants(String key, int depth) {
+        return graph.descendants(key, Math.min(depth, properties.getMaxDepth()));
+    }
+
+    /**
+     * 前回の保存以降に変更があれば、スナップショットを保存します。
+     * <p>
+     * 一時ファイルに書き出してから置き換えるため、保存中に停止しても前回のスナップショットは壊れません。
+     * ロックを保持するのはグラフを複製する間のみで、ファイルの書き出し中も登録や探索は止まりません。
+     */
+    @Scheduled(fixedDelayString = "${c2pa.provenance.snapshot-interval:PT1M}")
+    public synchronized void snapshot() {
+        if (properties.getSnapshotPath() == null || graph.modificationCount() == snapshotModificationCount) {
+            return;
+        }
+        Path path = properties.getSnapshotPath().toAbsolutePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            ProvenanceGraph.Snapshot snapshot = graph.snapshot();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                snapshot.writeTo(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotModificationCount = snapshot.modificationCount();
+        } catch (IOException e) {
+            log.warn("Failed to write provenance snapshot to {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        snapshot();
+    }
+
+    private static ProvenanceGraph load(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return new ProvenanceGraph();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            ProvenanceGraph graph = ProvenanceGraph.readFrom(in);
+            log.info("Loaded provenance graph with {} nodes from {}", graph.nodeCount(), path);
+            return graph;
+        } catch (IOException e) {
+            log.warn("Failed to load provenance snapshot from {}, starting with an empty graph", path, e);
+            return new ProvenanceGraph();
+        }
+    }
+}
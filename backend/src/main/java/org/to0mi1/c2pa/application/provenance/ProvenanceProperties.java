@@ -0,0 +1,44 @@
+package org.to0mi1.c2pa.application.provenance;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 来歴グラフの索引の設定。
+ * <p>
+ * {@code c2pa.provenance}プレフィックスで設定します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.provenance")
+public class ProvenanceProperties {
+
+    /**
+     * 検証結果を来歴グラフに登録するかどうか。
+     */
+    private boolean enabled = true;
+
+    /**
+     * スナップショットの保存先。起動時にこのファイルから索引を復元します。
+     * <p>
+     * 未設定の場合はスナップショットを保存せず、索引は再起動すると失われます。
+     */
+    private Path snapshotPath;
+
+    /**
+     * スナップショットを保存する間隔。変更がない場合は保存しません。
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+
+    /**
+     * 探索の深さの上限。
+     */
+    private int maxDepth = 64;
+
+    /**
+     * グラフに登録するノード数の上限。上限に達した後の検証結果は登録しません。
+     */
+    private int maxNodes = 5_000_000;
+}
@@ -0,0 +1,50 @@
+package org.to0mi1.c2pa.application.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * リクエストの送信元クライアントを識別するクラス。
+ * <p>
+ * {@link RateLimitProperties#getClientHeader()}のAPIキーが{@link RateLimitProperties#getClients()}に設定されている場合は
+ * そのキーを、それ以外の場合は接続元IPアドレスをクライアントの識別子とします。
+ * {@link RateLimitProperties#getClientAddressHeader()}が設定されている場合は、接続元IPアドレスの代わりに
+ * リバースプロキシが付与したそのヘッダーの値を使用します。
+ * 任意のAPIキーを名乗るだけで別のクライアントとして扱われないよう、設定されていないキーは使用しません。
+ *
+ * @see ClientRateLimitInterceptor
+ */
+@Component
+public class ClientIdResolver {
+
+    private final RateLimitProperties properties;
+
+    public ClientIdResolver(RateLimitProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * リクエストの送信元クライアントの識別子を返します。
+     *
+     * @param request リクエスト
+     * @return 設定済みのAPIキー、または接続元IPアドレス
+     */
+    public String resolve(HttpServletRequest request) {
+        String apiKey = request.getHeader(properties.getClientHeader());
+        return StringUtils.hasText(apiKey) && properties.getClients().containsKey(apiKey)
+                ? apiKey : clientAddress(request);
+    }
+
+    private String clientAddress(HttpServletRequest request) {
+        if (!StringUtils.hasText(properties.getClientAddressHeader())) {
+            return request.getRemoteAddr();
+        }
+        String forwarded = request.getHeader(properties.getClientAddressHeader());
+        if (!StringUtils.hasText(forwarded)) {
+            return request.getRemoteAddr();
+        }
+        String last = forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+        return StringUtils.hasText(last) ? last : request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,111 @@
+package org.to0mi1.c2pa.application.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.to0mi1.c2pa.timing.RequestTimings;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * クライアント単位のレート制限と、Core APIへの公平な実行順序を適用するインターセプター。
+ * <p>
+ * リクエストごとに次の2段階の制御を行います。
+ * <ol>
+ *   <li>クライアントのトークンバケットからトークンを取得する。取得できない場合は429を返す。</li>
+ *   <li>{@link FairRequestScheduler}から実行枠を取得する。待ち時間を超えた場合は503を返す。</li>
+ * </ol>
+ * 実行枠はリクエスト完了時（{@link #afterCompletion}）に返却されます。
+ * <p>
+ * クライアントは{@link ClientIdResolver}で識別します。
+ * 保持するクライアント数が上限に達した場合、新しいクライアントは共有のトークンバケットで制限します。
+ *
+ * @see RateLimitProperties
+ */
+@Component
+public class ClientRateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED_ATTRIBUTE = ClientRateLimitInterceptor.class.getName() + ".admitted";
+    private static final String OVERFLOW_CLIENT_ID = "";
+
+    private final RateLimitProperties properties;
+    private final ClientIdResolver clientIdResolver;
+    private final FairRequestScheduler scheduler;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public ClientRateLimitInterceptor(RateLimitProperties properties, ClientIdResolver clientIdResolver) {
+        this.properties = properties;
+        this.clientIdResolver = clientIdResolver;
+        this.scheduler = new FairRequestScheduler(properties.getMaxConcurrentRequests());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        String clientId = clientIdResolver.resolve(request);
+        RateLimitProperties.ClientPolicy policy = properties.getClients().get(clientId);
+
+        long now = System.nanoTime();
+        if (policy == null && !buckets.containsKey(clientId) && buckets.size() >= properties.getMaxTrackedClients()) {
+            clientId = OVERFLOW_CLIENT_ID;
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(clientId, id -> new TokenBucket(
+                capacityOf(policy), refillPerSecondOf(policy), now));
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
+            return false;
+        }
+
+        long queueStart = System.nanoTime();
+        boolean admitted = scheduler.acquire(clientId, weightOf(policy),
+                properties.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+        RequestTimings.current().record("queue", System.nanoTime() - queueStart);
+        if (!admitted) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Core API is busy");
+            return false;
+        }
+        request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            scheduler.release();
+        }
+    }
+
+    /**
+     * 満杯になったトークンバケットと、待機のないクライアントのスケジューリング状態を破棄します。
+     */
+    @Scheduled(fixedDelayString = "PT1M")
+    public void purgeIdleClients() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        scheduler.purgeIdleClients();
+    }
+
+    private int capacityOf(RateLimitProperties.ClientPolicy policy) {
+        return policy != null && policy.getCapacity() != null ? policy.getCapacity() : properties.getCapacity();
+    }
+
+    private double refillPerSecondOf(RateLimitProperties.ClientPolicy policy) {
+        return policy != null && policy.getRefillPerSecond() != null
+                ? policy.getRefillPerSecond() : properties.getRefillPerSecond();
+    }
+
+    private int weightOf(RateLimitProperties.ClientPolicy policy) {
+        return policy != null && policy.getWeight() != null ? policy.getWeight() : properties.getWeight();
+    }
+}
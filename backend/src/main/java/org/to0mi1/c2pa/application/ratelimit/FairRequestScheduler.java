@@ -0,0 +1,156 @@
+package org.to0mi1.c2pa.application.ratelimit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Core APIへの同時実行数を制限し、待機中のリクエストを重み付き公平キューイング（WFQ）で払い出すスケジューラー。
+ * <p>
+ * 空きがない場合、各リクエストにはクライアントの重みに反比例した仮想終了時刻が割り当てられ、
+ * 空きが出るたびに仮想終了時刻が最小のリクエストから実行されます。
+ * これにより、大量のリクエストを送り込むクライアントがいても、他のクライアントは重みに応じた順番で実行されます。
+ * タイムアウトや割り込みで待機を取りやめた場合は、そのリクエストの分だけクライアントの仮想終了時刻を戻し、
+ * 実行されなかったリクエストで以後の順番が不利にならないようにします。
+ * <p>
+ * Core APIの呼び出しはミリ秒〜秒単位のため、キュー操作は単一のロックで保護しています。
+ */
+final class FairRequestScheduler {
+
+    private final int maxConcurrent;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final Map<String, Double> lastFinishTags = new HashMap<>();
+
+    private int active;
+    private double virtualTime;
+    private long sequence;
+
+    FairRequestScheduler(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * 実行枠を取得します。空きがない場合は公平キューで待機します。
+     *
+     * @param clientId クライアント識別子
+     * @param weight   クライアントの重み（1以上）
+     * @param timeout  最大待ち時間
+     * @param unit     {@code timeout}の単位
+     * @return 実行枠を取得できた場合は{@code true}、タイムアウトした場合は{@code false}
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    boolean acquire(String clientId, int weight, long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if (active < maxConcurrent && queue.isEmpty()) {
+                active++;
+                return true;
+            }
+
+            double cost = 1.0 / Math.max(1, weight);
+            double start = Math.max(virtualTime, lastFinishTags.getOrDefault(clientId, 0.0));
+            double finishTag = start + cost;
+            lastFinishTags.put(clientId, finishTag);
+            Waiter waiter = new Waiter(finishTag, sequence++, lock.newCondition());
+            queue.add(waiter);
+
+            long remainingNanos = unit.toNanos(timeout);
+            try {
+                while (!waiter.granted) {
+                    if (remainingNanos <= 0) {
+                        abandonLocked(waiter, clientId, cost);
+                        return false;
+                    }
+                    remainingNanos = waiter.condition.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    releaseLocked();
+                } else {
+                    abandonLocked(waiter, clientId, cost);
+                }
+                throw e;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 実行枠を返却し、待機中のリクエストがあれば仮想終了時刻の最も早いものに引き渡します。
+     */
+    void release() {
+        lock.lock();
+        try {
+            releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 待機中のリクエストがないクライアントの仮想終了時刻を破棄します。
+     */
+    void purgeIdleClients() {
+        lock.lock();
+        try {
+            lastFinishTags.values().removeIf(finishTag -> finishTag <= virtualTime);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 待機を取りやめたリクエストをキューから取り除き、クライアントの仮想終了時刻を{@code cost}だけ戻します。
+     * 戻した結果が現在の仮想時刻以前であれば、待機中のリクエストがないものとして破棄します。
+     */
+    private void abandonLocked(Waiter waiter, String clientId, double cost) {
+        queue.remove(waiter);
+        Double lastFinishTag = lastFinishTags.get(clientId);
+        if (lastFinishTag == null) {
+            return;
+        }
+        double rolledBack = lastFinishTag - cost;
+        if (rolledBack <= virtualTime) {
+            lastFinishTags.remove(clientId);
+        } else {
+            lastFinishTags.put(clientId, rolledBack);
+        }
+    }
+
+    private void releaseLocked() {
+        Waiter next = queue.poll();
+        if (next == null) {
+            active--;
+            return;
+        }
+        virtualTime = next.finishTag;
+        next.granted = true;
+        next.condition.signal();
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+
+        private final double finishTag;
+        private final long sequence;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(double finishTag, long sequence, Condition condition) {
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byTag = Double.compare(finishTag, other.finishTag);
+            return byTag != 0 ? byTag : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.to0mi1.c2pa.application.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * クライアント単位のレート制限と公平スケジューリングの設定。
+ * <p>
+ * {@code c2pa.rate-limit}プレフィックスで設定します。
+ * クライアントは{@link #clientHeader}で指定したヘッダー（APIキー）が{@link #clients}に設定されている場合はそのキーで、
+ * それ以外の場合は接続元IPアドレスで識別します。
+ * <p>
+ * リバースプロキシの背後では接続元IPアドレスがすべてプロキシのものになり、全クライアントが1つのバケットを共有するため、
+ * 既定では無効です。有効にする場合は{@link #clientAddressHeader}を設定します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * レート制限を有効にするかどうか。
+     */
+    private boolean enabled = false;
+
+    /**
+     * クライアントを識別するリクエストヘッダー名。
+     */
+    private String clientHeader = "X-API-Key";
+
+    /**
+     * 接続元IPアドレスの代わりに使用する、信頼できるリバースプロキシが付与するヘッダー名（例: {@code X-Forwarded-For}）。
+     * <p>
+     * カンマ区切りの場合は、プロキシが追記した最後の値を使用します。
+     * クライアントが任意の値を名乗れるため、プロキシを経由しない接続を受け付ける場合は設定しません。
+     */
+    private String clientAddressHeader;
+
+    /**
+     * 既定のバースト許容量（トークンバケットの容量）。
+     */
+    private int capacity = 20;
+
+    /**
+     * 既定の1秒あたりのトークン補充数。
+     */
+    private double refillPerSecond = 10;
+
+    /**
+     * 既定の公平スケジューリングの重み。
+     */
+    private int weight = 10;
+
+    /**
+     * Core APIに同時に送り込むリクエスト数の上限。
+     * <p>
+     * 上限を超えたリクエストは重み付き公平キューイングで順番待ちします。
+     */
+    private int maxConcurrentRequests = 48;
+
+    /**
+     * 公平キューでの最大待ち時間。超過した場合は503を返します。
+     */
+    private Duration maxQueueWait = Duration.ofSeconds(10);
+
+    /**
+     * 状態を保持するクライアント数の上限。
+     * <p>
+     * 上限に達した後の新しいクライアントは、1つの共有のトークンバケットでまとめて制限します。
+     */
+    private int maxTrackedClients = 100_000;
+
+    /**
+     * クライアントごとの個別設定。キーは{@link #clientHeader}の値です。
+     * <p>
+     * ここに設定されていないキーはクライアントの識別に使用しません。
+     */
+    private Map<String, ClientPolicy> clients = new HashMap<>();
+
+    /**
+     * クライアントごとの個別設定。
+     * <p>
+     * 未指定の項目は既定値を使用します。
+     */
+    @Data
+    public static class ClientPolicy {
+
+        /**
+         * バースト許容量。
+         */
+        private Integer capacity;
+
+        /**
+         * 1秒あたりのトークン補充数。
+         */
+        private Double refillPerSecond;
+
+        /**
+         * 公平スケジューリングの重み。一括処理のクライアントには小さい値を設定します。
+         */
+        private Integer weight;
+    }
+}
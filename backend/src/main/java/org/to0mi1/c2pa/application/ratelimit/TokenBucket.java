@@ -0,0 +1,60 @@
+package org.to0mi1.c2pa.application.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ロックフリーなトークンバケット。
+ * <p>
+ * GCRA（Generic Cell Rate Algorithm）により、トークン残量と最終補充時刻の代わりに
+ * 「理論上の次回到着時刻（TAT）」1つだけを{@link AtomicLong}で保持します。
+ * そのため取得処理は単一のCASで完結し、多数のスレッドから同時に呼び出されてもロック競合が発生しません。
+ */
+final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    /**
+     * @param capacity        バースト許容量
+     * @param refillPerSecond 1秒あたりのトークン補充数
+     * @param nowNanos        現在時刻（{@link System#nanoTime()}）
+     */
+    TokenBucket(int capacity, double refillPerSecond, long nowNanos) {
+        this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / refillPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(1, capacity);
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * トークンを1つ取得します。
+     *
+     * @param nowNanos 現在時刻（{@link System#nanoTime()}）
+     * @return 取得できなかった場合は次にトークンが補充されるまでの待ち時間（ナノ秒）、取得できた場合は{@code 0}
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long newTat = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            long waitNanos = newTat - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * バケットが満杯（新規作成した状態と同等）かどうかを返します。
+     * <p>
+     * 満杯のバケットは破棄しても挙動が変わらないため、アイドル状態のクライアントの掃除に使用します。
+     *
+     * @param nowNanos 現在時刻（{@link System#nanoTime()}）
+     * @return 満杯であれば{@code true}
+     */
+    boolean isFull(long nowNanos) {
+        return theoreticalArrivalNanos.get() - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,35 @@
+package org.to0mi1.c2pa.application.records;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 検証結果の記録と索引の設定。
+ * <p>
+ * {@code c2pa.records}プレフィックスで設定します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.records")
+public class RecordsProperties {
+
+    /**
+     * 検証結果を記録するかどうか。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 記録するマニフェスト数の上限。上限に達した後の検証結果は記録しません。
+     */
+    private int maxRecords = 5_000_000;
+
+    /**
+     * 同じマニフェストについて、内容の異なる画像の複製を別々に記録する数の上限。
+     * 上限に達した後の新しい複製の検証結果は記録しません。
+     */
+    private int maxCopiesPerLabel = 16;
+
+    /**
+     * 1回の照会で返すレコード数の上限。
+     */
+    private int maxResults = 1000;
+}
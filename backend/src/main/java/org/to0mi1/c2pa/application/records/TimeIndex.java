@@ -0,0 +1,115 @@
+package org.to0mi1.c2pa.application.records;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 時刻（エポックミリ秒）をキーとしてレコード番号を保持する整列済みの索引。
+ * <p>
+ * 追加は未整列の小さなバッファに行い、バッファが満杯になった時点で整列済みの配列に併合します。
+ * 範囲検索は整列済みの配列を二分探索し、バッファ内の該当分と併合しながら降順に走査します。
+ * スレッドセーフではありません。
+ */
+final class TimeIndex {
+
+    private static final int MAX_PENDING = 1024;
+
+    private long[] keys = new long[MAX_PENDING];
+    private int[] ids = new int[MAX_PENDING];
+    private int size;
+    private final long[] pendingKeys = new long[MAX_PENDING];
+    private final int[] pendingIds = new int[MAX_PENDING];
+    private int pendingSize;
+
+    void add(long key, int id) {
+        if (pendingSize == MAX_PENDING) {
+            mergePending();
+        }
+        pendingKeys[pendingSize] = key;
+        pendingIds[pendingSize] = id;
+        pendingSize++;
+    }
+
+    /**
+     * {@code from}以上{@code to}以下のキーを持つレコード番号を、キーの降順に通知します。
+     */
+    void forEachDescending(long from, long to, IntConsumer consumer) {
+        long[] extraKeys = new long[pendingSize];
+        int[] extraIds = new int[pendingSize];
+        int extra = 0;
+        for (int i = 0; i < pendingSize; i++) {
+            if (pendingKeys[i] >= from && pendingKeys[i] <= to) {
+                extraKeys[extra] = pendingKeys[i];
+                extraIds[extra] = pendingIds[i];
+                extra++;
+            }
+        }
+        sortPairs(extraKeys, extraIds, extra);
+
+        int low = lowerBound(from);
+        int i = lowerBound(to == Long.MAX_VALUE ? to : to + 1) - 1;
+        int j = extra - 1;
+        while (i >= low || j >= 0) {
+            if (j < 0 || (i >= low && keys[i] >= extraKeys[j])) {
+                consumer.accept(ids[i--]);
+            } else {
+                consumer.accept(extraIds[j--]);
+            }
+        }
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void mergePending() {
+        sortPairs(pendingKeys, pendingIds, pendingSize);
+        if (size + pendingSize > keys.length) {
+            int capacity = Math.max(size + pendingSize, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        // 末尾から併合し、追加の配列を確保せずに整列済みの配列へ取り込む
+        int i = size - 1;
+        int j = pendingSize - 1;
+        for (int k = size + pendingSize - 1; j >= 0; k--) {
+            if (i >= 0 && keys[i] > pendingKeys[j]) {
+                keys[k] = keys[i];
+                ids[k] = ids[i--];
+            } else {
+                keys[k] = pendingKeys[j];
+                ids[k] = pendingIds[j--];
+            }
+        }
+        size += pendingSize;
+        pendingSize = 0;
+    }
+
+    /**
+     * キーと値の組をキーの昇順に整列します。要素数が小さいため挿入ソートを使用します。
+     */
+    private static void sortPairs(long[] keys, int[] values, int length) {
+        for (int i = 1; i < length; i++) {
+            long key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+}
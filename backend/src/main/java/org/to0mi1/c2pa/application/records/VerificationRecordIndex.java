@@ -0,0 +1,309 @@
+package org.to0mi1.c2pa.application.records;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.to0mi1.c2pa.application.compact.StringDictionary;
+import org.to0mi1.c2pa.application.dto.RecordQuery;
+import org.to0mi1.c2pa.application.dto.RecordQueryResponse;
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+import org.to0mi1.c2pa.application.event.ManifestVerifiedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 検証結果をアクティブなマニフェスト単位で記録し、二次索引による照会を提供するクラス。
+ * <p>
+ * 記録ごとに連番のレコード番号を割り当て、次の索引を保持します。
+ * <ul>
+ *   <li>署名時刻 - {@link TimeIndex}による整列済みの索引（範囲検索と降順の走査）</li>
+ *   <li>発行者・署名者・アルゴリズム - 値ごとのレコード番号のハッシュ索引</li>
+ *   <li>AI学習・マイニングの利用制限・検証状態 - 値ごとのビットマップ索引</li>
+ * </ul>
+ * 照会では、ハッシュ索引とビットマップ索引の条件を{@link BitSet}の論理積で絞り込んでから、
+ * 署名時刻の索引を範囲内だけ走査します。過去の画像を再検証せずに、数百万件の記録から即座に回答できます。
+ * <p>
+ * 記録するのはハードバインディングまで検証した結果のみです。同じマニフェストは画像の複製ごとに検証されうるため、
+ * レコードはマニフェストのラベルと画像の内容（SHA-256の先頭64ビット）の組で識別します。
+ * 改変された複製は別のレコードになるため、正規の画像の記録を書き換えません。
+ * 同じ内容の画像が再び検証された場合は、最後の検証状態で更新します。
+ * <p>
+ * 記録はメモリ上にのみ保持され、再起動すると失われます。
+ *
+ * @see RecordsProperties
+ */
+@Slf4j
+@Component
+public class VerificationRecordIndex {
+
+    /**
+     * 署名時刻を持たないレコードの索引キー。時刻の範囲を指定した照会には一致しません。
+     */
+    private static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    private final RecordsProperties properties;
+    private final StringDictionary dictionary;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<RecordQueryResponse.Record> records = new ArrayList<>();
+    /**
+     * ラベルごとの最初のレコード番号。同じラベルの複製は{@link #nextCopy}でつなぎます。
+     */
+    private final Map<String, Integer> byLabel = new HashMap<>();
+    private long[] contentKeys = new long[1024];
+    private int[] nextCopy = new int[1024];
+    private final TimeIndex signedAtIndex = new TimeIndex();
+    private final Map<String, Postings> issuerIndex = new HashMap<>();
+    private final Map<String, Postings> signerIndex = new HashMap<>();
+    private final Map<String, Postings> algorithmIndex = new HashMap<>();
+    private final Map<String, BitSet> aiInferenceBitmaps = new HashMap<>();
+    private final Map<String, BitSet> aiGenerativeTrainingBitmaps = new HashMap<>();
+    private final Map<String, BitSet> validationStateBitmaps = new HashMap<>();
+    private boolean full;
+
+    public VerificationRecordIndex(RecordsProperties properties, StringDictionary dictionary,
+                                   MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.dictionary = dictionary;
+
+        Gauge.builder("c2pa.records.size", this, VerificationRecordIndex::size)
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onManifestVerified(ManifestVerifiedEvent event) {
+        if (!properties.isEnabled() || !event.bindingChecked() || event.manifest().getActiveManifest() == null
+                || event.imageSha256() == null) {
+            return;
+        }
+        String label = event.manifest().getActiveManifest();
+        long contentKey = Long.parseUnsignedLong(event.imageSha256().substring(0, 16), 16);
+
+        lock.writeLock().lock();
+        try {
+            Integer head = byLabel.get(label);
+            int copies = 0;
+            int last = -1;
+            for (int id = head != null ? head : -1; id >= 0; id = nextCopy[id]) {
+                if (contentKeys[id] == contentKey) {
+                    updateValidationState(id, intern(event.response().getValidationState()));
+                    return;
+                }
+                copies++;
+                last = id;
+            }
+            if (copies < properties.getMaxCopiesPerLabel()) {
+                add(label, contentKey, last, event.response());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 条件に一致するレコードを、署名時刻の降順に返します。
+     *
+     * @param query 照会条件
+     * @return 照会結果
+     */
+    public RecordQueryResponse query(RecordQuery query) {
+        int limit = Math.max(0, Math.min(query.getLimit(), properties.getMaxResults()));
+        boolean timeRange = query.getSignedFrom() != null || query.getSignedTo() != null;
+        long from = query.getSignedFrom() != null
+                ? query.getSignedFrom().toInstant().toEpochMilli()
+                : timeRange ? UNKNOWN_TIME + 1 : UNKNOWN_TIME;
+        long to = query.getSignedTo() != null ? query.getSignedTo().toInstant().toEpochMilli() : Long.MAX_VALUE;
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = null;
+            candidates = and(candidates, query.getIssuer(), issuerIndex);
+            candidates = and(candidates, query.getSigner(), signerIndex);
+            candidates = and(candidates, query.getAlgorithm(), algorithmIndex);
+            candidates = andBitmap(candidates, query.getAiInference(), aiInferenceBitmaps);
+            candidates = andBitmap(candidates, query.getAiGenerativeTraining(), aiGenerativeTrainingBitmaps);
+            candidates = andBitmap(candidates, query.getValidationState(), validationStateBitmaps);
+
+            List<RecordQueryResponse.Record> matches = new ArrayList<>(Math.min(limit, 64));
+            long[] total = new long[1];
+            if (candidates == null || !candidates.isEmpty()) {
+                BitSet filter = candidates;
+                signedAtIndex.forEachDescending(from, to, id -> {
+                    if (filter == null || filter.get(id)) {
+                        if (total[0]++ < limit) {
+                            matches.add(records.get(id));
+                        }
+                    }
+                });
+            }
+
+            RecordQueryResponse response = new RecordQueryResponse();
+            response.setTotal(total[0]);
+            response.setRecords(matches);
+            return response;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return records.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 新しいレコードを登録します。
+     *
+     * @param previousCopy 同じラベルの最後のレコード番号。最初の複製の場合は{@code -1}
+     */
+    private void add(String label, long contentKey, int previousCopy, VerifyResponse response) {
+        if (records.size() >= properties.getMaxRecords()) {
+            if (!full) {
+                full = true;
+                log.warn("Verification record index reached {} records, new results are no longer recorded",
+                        properties.getMaxRecords());
+            }
+            return;
+        }
+        RecordQueryResponse.Record record = new RecordQueryResponse.Record();
+        record.setLabel(label);
+        record.setTitle(response.getTitle());
+        record.setSigner(intern(response.getSigner()));
+        record.setIssuer(intern(response.getIssuer()));
+        record.setAlgorithm(intern(response.getAlgorithm()));
+        record.setSignedAt(response.getSignedAt());
+        record.setValidationState(intern(response.getValidationState()));
+        if (response.getTrainingMining() != null) {
+            record.setAiInference(useOf(response.getTrainingMining().getAiInference()));
+            record.setAiGenerativeTraining(useOf(response.getTrainingMining().getAiGenerativeTraining()));
+        }
+
+        int id = records.size();
+        records.add(record);
+        if (id == contentKeys.length) {
+            contentKeys = Arrays.copyOf(contentKeys, id * 2);
+            nextCopy = Arrays.copyOf(nextCopy, id * 2);
+        }
+        contentKeys[id] = contentKey;
+        nextCopy[id] = -1;
+        if (previousCopy >= 0) {
+            nextCopy[previousCopy] = id;
+        } else {
+            byLabel.put(label, id);
+        }
+        signedAtIndex.add(record.getSignedAt() != null
+                ? record.getSignedAt().toInstant().toEpochMilli() : UNKNOWN_TIME, id);
+        index(issuerIndex, record.getIssuer(), id);
+        index(signerIndex, record.getSigner(), id);
+        index(algorithmIndex, record.getAlgorithm(), id);
+        indexBitmap(aiInferenceBitmaps, record.getAiInference(), id);
+        indexBitmap(aiGenerativeTrainingBitmaps, record.getAiGenerativeTraining(), id);
+        indexBitmap(validationStateBitmaps, record.getValidationState(), id);
+    }
+
+    /**
+     * 記録済みの画像が再び検証された場合に、検証状態を最後の結果で更新します。
+     * 内容が同じ画像の検証状態が変わるのは、Core APIの信頼アンカーの変更や証明書の期限切れなどによるものです。
+     */
+    private void updateValidationState(int id, String validationState) {
+        RecordQueryResponse.Record record = records.get(id);
+        if (Objects.equals(record.getValidationState(), validationState)) {
+            return;
+        }
+        if (record.getValidationState() != null) {
+            BitSet previous = validationStateBitmaps.get(record.getValidationState());
+            if (previous != null) {
+                previous.clear(id);
+            }
+        }
+        record.setValidationState(validationState);
+        indexBitmap(validationStateBitmaps, validationState, id);
+    }
+
+    private String useOf(VerifyResponse.TrainingMiningEntry entry) {
+        return entry != null ? intern(entry.getUse()) : null;
+    }
+
+    /**
+     * 重複する文字列を共有の辞書で1つのインスタンスにまとめ、発行者名などを多数のレコードや他の索引と共有します。
+     */
+    private String intern(String value) {
+        return dictionary.intern(value);
+    }
+
+    private static void index(Map<String, Postings> index, String value, int id) {
+        if (value != null) {
+            index.computeIfAbsent(value, v -> new Postings()).add(id);
+        }
+    }
+
+    private static void indexBitmap(Map<String, BitSet> bitmaps, String value, int id) {
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, v -> new BitSet()).set(id);
+        }
+    }
+
+    private static BitSet and(BitSet candidates, String value, Map<String, Postings> index) {
+        if (value == null) {
+            return candidates;
+        }
+        Postings postings = index.get(value);
+        BitSet matches = postings != null ? postings.toBitSet() : new BitSet();
+        if (candidates != null) {
+            matches.and(candidates);
+        }
+        return matches;
+    }
+
+    private static BitSet andBitmap(BitSet candidates, String value, Map<String, BitSet> bitmaps) {
+        if (value == null) {
+            return candidates;
+        }
+        BitSet bitmap = bitmaps.get(value);
+        if (bitmap == null) {
+            return new BitSet();
+        }
+        BitSet matches = (BitSet) bitmap.clone();
+        if (candidates != null) {
+            matches.and(candidates);
+        }
+        return matches;
+    }
+
+    /**
+     * 1つの値に一致するレコード番号の昇順のリスト。
+     */
+    private static final class Postings {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        BitSet toBitSet() {
+            BitSet bits = new BitSet(size > 0 ? ids[size - 1] + 1 : 0);
+            for (int i = 0; i < size; i++) {
+                bits.set(ids[i]);
+            }
+            return bits;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.to0mi1.c2pa.application.softbinding;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 画像の知覚ハッシュ（dHash）を算出するユーティリティ。
+ * <p>
+ * 画像を9×8のグレースケールに縮小し、横に隣り合う画素の明暗の大小を64ビットで表します。
+ * 再圧縮・リサイズ・メタデータの除去では値がほとんど変わらないため、ハミング距離で近似重複を判定できます。
+ * <p>
+ * 大きな画像は読み込み時に長辺を基準にサブサンプリングし、デコードする画素数を抑えます。
+ * 細長い画像でも縮小後の画素数は{@code DECODE_TARGET}の2乗程度に収まります。
+ * 画素数が{@value #MAX_PIXELS}を超える画像は、デコーダーの作業領域が大きくなりすぎるため読み込みません。
+ */
+final class PerceptualHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+    private static final int DECODE_TARGET = 256;
+    private static final long MAX_PIXELS = 100_000_000L;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * 画像の知覚ハッシュを算出します。
+     *
+     * @param image 画像データ
+     * @return 64ビットの知覚ハッシュ
+     * @throws IOException 画像を読み込めない場合、未対応の形式の場合、または画素数が上限を超える場合
+     */
+    static long dHash(byte[] image) throws IOException {
+        BufferedImage decoded = decode(image);
+        double[] luminance = downscale(decoded);
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                hash <<= 1;
+                if (luminance[y * WIDTH + x] > luminance[y * WIDTH + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static BufferedImage decode(byte[] image) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    throw new IOException("Image too large: " + width + "x" + height);
+                }
+                int longestSide = Math.max(width, height);
+                int subsampling = Math.max(1, longestSide / DECODE_TARGET);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 各セルに含まれる画素の平均輝度を求め、9×8に縮小します。
+     */
+    private static double[] downscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[] sums = new double[WIDTH * HEIGHT];
+        int[] counts = new int[WIDTH * HEIGHT];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellY = Math.min(HEIGHT - 1, y * HEIGHT / height);
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int cell = cellY * WIDTH + Math.min(WIDTH - 1, x * WIDTH / width);
+                sums[cell] += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                counts[cell]++;
+            }
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = counts[i] > 0 ? sums[i] / counts[i] : 0;
+        }
+        return sums;
+    }
+}
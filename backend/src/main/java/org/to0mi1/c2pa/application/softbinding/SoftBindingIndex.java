@@ -0,0 +1,260 @@
+package org.to0mi1.c2pa.application.softbinding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.to0mi1.c2pa.application.admission.UploadMemoryBudget;
+import org.to0mi1.c2pa.application.compact.CompactVerification;
+import org.to0mi1.c2pa.application.compact.StringDictionary;
+import org.to0mi1.c2pa.application.dto.SoftBindingLookupResponse;
+import org.to0mi1.c2pa.application.event.ManifestVerifiedEvent;
+import org.to0mi1.c2pa.core.model.ValidationStates;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 検証に成功した画像の知覚ハッシュを、局所性鋭敏型ハッシュ（LSH）で索引付けするクラス。
+ * <p>
+ * SNSなどでC2PAマニフェストが除去された画像でも、過去に検証した元画像の検証結果をたどれるようにします。
+ * 64ビットの知覚ハッシュを16ビットずつ4つのバンドに分け、バンドごとに値をキーとするバケットに登録します。
+ * 照会時は各バンドの値と、そこから1ビットだけ異なる値のバケットのみを調べるため、
+ * ハミング距離7以下の候補を索引全体を走査せずに見つけられます（鳩の巣原理により、
+ * 距離7以下なら少なくとも1つのバンドの差が1ビット以下になります）。
+ * <p>
+ * 知覚ハッシュの算出は画像のデコードを伴うため、専用のスレッドでリクエストの外で行います。
+ * 算出待ちの画像データは{@link UploadMemoryBudget}から確保し、空きがなければ登録を省略します。
+ * 索引はメモリ上にのみ保持され、検証結果は{@link CompactVerification}の圧縮表現で保持します。
+ *
+ * @see PerceptualHash
+ * @see SoftBindingProperties
+ */
+@Slf4j
+@Component
+public class SoftBindingIndex {
+
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 16;
+    private static final int BAND_MASK = (1 << BAND_BITS) - 1;
+
+    private final SoftBindingProperties properties;
+    private final StringDictionary dictionary;
+    private final UploadMemoryBudget memoryBudget;
+    private final ThreadPoolExecutor executor;
+    private final Counter skipped;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] hashes = new long[1024];
+    private final List<CompactVerification> verifications = new ArrayList<>();
+    private final Map<String, Integer> byLabel = new HashMap<>();
+    private final int[][][] buckets = new int[BANDS][1 << BAND_BITS][];
+    private final int[][] bucketSizes = new int[BANDS][1 << BAND_BITS];
+
+    public SoftBindingIndex(SoftBindingProperties properties, StringDictionary dictionary,
+                            UploadMemoryBudget memoryBudget, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.dictionary = dictionary;
+        this.memoryBudget = memoryBudget;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("c2pa-soft-binding-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, properties.getMaxPending())),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("c2pa.soft-binding.entries", this, SoftBindingIndex::size)
+                .register(meterRegistry);
+        this.skipped = Counter.builder("c2pa.soft-binding.skipped")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onManifestVerified(ManifestVerifiedEvent event) {
+        String label = event.manifest().getActiveManifest();
+        if (!properties.isEnabled() || !event.bindingChecked() || event.image() == null || label == null
+                || !ValidationStates.isSuccessful(event.manifest().getValidationState())) {
+            return;
+        }
+        int reserved = memoryBudget.tryReserve(event.image().length);
+        if (reserved == 0) {
+            skipped.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    register(label, event);
+                } finally {
+                    memoryBudget.release(reserved);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            memoryBudget.release(reserved);
+            skipped.increment();
+        }
+    }
+
+    /**
+     * 画像の近似重複を索引から探します。
+     *
+     * @param image 照会する画像データ
+     * @return 照会結果
+     * @throws IOException 画像を読み込めない場合、または未対応の形式の場合
+     */
+    public SoftBindingLookupResponse lookup(byte[] image) throws IOException {
+        long hash = PerceptualHash.dHash(image);
+        int maxDistance = Math.min(properties.getMaxDistance(), 2 * BANDS - 1);
+
+        List<SoftBindingLookupResponse.Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            BitSet seen = new BitSet(verifications.size());
+            for (int band = 0; band < BANDS; band++) {
+                int value = bandValue(hash, band);
+                collect(band, value, hash, maxDistance, seen, matches);
+                for (int bit = 0; bit < BAND_BITS; bit++) {
+                    collect(band, value ^ (1 << bit), hash, maxDistance, seen, matches);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(SoftBindingLookupResponse.Match::getDistance));
+
+        SoftBindingLookupResponse response = new SoftBindingLookupResponse();
+        response.setPerceptualHash(HexFormat.of().toHexDigits(hash));
+        response.setMatches(matches.size() > properties.getMaxResults()
+                ? new ArrayList<>(matches.subList(0, properties.getMaxResults()))
+                : matches);
+        return response;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return verifications.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 画像を索引に登録します。
+     * <p>
+     * 登録済みのマニフェストや上限に達した後の画像で辞書を増やさないよう、知覚ハッシュの算出と検証結果の圧縮は
+     * 重複と上限の確認を済ませてから行います。検証結果はイベントが運ぶ変換済みのレスポンスを圧縮します。
+     */
+    private void register(String label, ManifestVerifiedEvent event) {
+        if (!acceptable(label)) {
+            return;
+        }
+        long hash;
+        try {
+            hash = PerceptualHash.dHash(event.image());
+        } catch (IOException | RuntimeException e) {
+            log.debug("Skipping soft-binding registration for {}: {}", label, e.getMessage());
+            return;
+        }
+        CompactVerification verification = CompactVerification.encode(event.response(), dictionary);
+
+        lock.writeLock().lock();
+        try {
+            if (byLabel.containsKey(label)) {
+                return;
+            }
+            if (verifications.size() >= properties.getMaxEntries()) {
+                skipped.increment();
+                return;
+            }
+            int id = verifications.size();
+            verifications.add(verification);
+            byLabel.put(label, id);
+            if (id == hashes.length) {
+                hashes = Arrays.copyOf(hashes, id + (id >> 1));
+            }
+            hashes[id] = hash;
+            for (int band = 0; band < BANDS; band++) {
+                addToBucket(band, bandValue(hash, band), id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 未登録のマニフェストで、索引が上限に達していなければ{@code true}を返します。
+     */
+    private boolean acceptable(String label) {
+        lock.readLock().lock();
+        try {
+            if (byLabel.containsKey(label)) {
+                return false;
+            }
+            if (verifications.size() >= properties.getMaxEntries()) {
+                skipped.increment();
+                return false;
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int band, int value, long hash, int maxDistance, BitSet seen,
+                         List<SoftBindingLookupResponse.Match> matches) {
+        int[] bucket = buckets[band][value];
+        int size = bucketSizes[band][value];
+        for (int i = 0; i < size; i++) {
+            int id = bucket[i];
+            if (seen.get(id)) {
+                continue;
+            }
+            seen.set(id);
+            int distance = Long.bitCount(hashes[id] ^ hash);
+            if (distance <= maxDistance) {
+                SoftBindingLookupResponse.Match match = new SoftBindingLookupResponse.Match();
+                match.setDistance(distance);
+                match.setVerification(verifications.get(id).decode(dictionary));
+                matches.add(match);
+            }
+        }
+    }
+
+    private void addToBucket(int band, int value, int id) {
+        int[] bucket = buckets[band][value];
+        int size = bucketSizes[band][value];
+        if (bucket == null) {
+            bucket = new int[2];
+        } else if (size == bucket.length) {
+            bucket = Arrays.copyOf(bucket, size * 2);
+        }
+        bucket[size] = id;
+        buckets[band][value] = bucket;
+        bucketSizes[band][value] = size + 1;
+    }
+
+    private static int bandValue(long hash, int band) {
+        return (int) (hash >>> (band * BAND_BITS)) & BAND_MASK;
+    }
+}
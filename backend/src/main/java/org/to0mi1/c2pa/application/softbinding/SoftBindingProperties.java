@@ -0,0 +1,44 @@
+package org.to0mi1.c2pa.application.softbinding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 知覚ハッシュによるソフトバインディング索引の設定。
+ * <p>
+ * {@code c2pa.soft-binding}プレフィックスで設定します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.soft-binding")
+public class SoftBindingProperties {
+
+    /**
+     * 検証に成功した画像の知覚ハッシュを索引に登録するかどうか。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 近似重複とみなす知覚ハッシュのハミング距離の上限（0〜7）。
+     */
+    private int maxDistance = 6;
+
+    /**
+     * 1回の照会で返す候補数の上限。
+     */
+    private int maxResults = 10;
+
+    /**
+     * 登録する画像数の上限。上限に達した後の画像は登録しません。
+     */
+    private int maxEntries = 1_000_000;
+
+    /**
+     * 知覚ハッシュを算出するスレッド数。
+     */
+    private int workers = 1;
+
+    /**
+     * 実行待ちの算出処理の上限。待機中の画像データを保持するため、小さい値にします。
+     */
+    private int maxPending = 8;
+}
@@ -0,0 +1,66 @@
+package org.to0mi1.c2pa.application.trust;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * 文字列の集合に対する不変のブルームフィルター。
+ * <p>
+ * {@link #mightContain}が{@code false}を返した要素は確実に集合に含まれません。
+ * 失効リストの照合の前段に置き、失効していない大多数の証明書をハッシュ計算のみで通過させます。
+ */
+final class BloomFilter {
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * @param values            登録する要素
+     * @param falsePositiveRate 目標とする偽陽性率
+     */
+    BloomFilter(Collection<String> values, double falsePositiveRate) {
+        int expected = Math.max(1, values.size());
+        long optimalBits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63, optimalBits));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+        this.bits = new long[(bitCount + 63) >>> 6];
+        for (String value : values) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int index = Math.floorMod(h1 + i * h2, bitCount);
+                bits[index >>> 6] |= 1L << index;
+            }
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64ビットのFNV-1aハッシュに最終混合を加えたもの。上位と下位の32ビットを二重ハッシュに使用します。
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,236 @@
+package org.to0mi1.c2pa.application.trust;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+import org.to0mi1.c2pa.core.model.C2paManifest;
+import org.to0mi1.c2pa.core.model.Manifest;
+import org.to0mi1.c2pa.core.model.SignatureInfo;
+import org.to0mi1.c2pa.core.model.ValidationStates;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * 署名証明書を信頼リスト・失効リストと照合し、信頼性を評価するクラス。
+ * <p>
+ * 評価は次の順に行います。
+ * <ol>
+ *   <li>失効リストに含まれる証明書（発行者とシリアル番号の組）は{@link TrustVerdict#REVOKED}</li>
+ *   <li>許可されていない署名アルゴリズムは{@link TrustVerdict#DISALLOWED_ALGORITHM}</li>
+ *   <li>信頼リストが設定されていて、発行者（およびシリアル番号）に一致しなければ{@link TrustVerdict#UNTRUSTED}</li>
+ *   <li>Core APIが証明書チェーンをトラストアンカーまで検証できた（検証状態が{@code "Trusted"}の）場合のみ
+ *       {@link TrustVerdict#TRUSTED}</li>
+ *   <li>それ以外は{@link TrustVerdict#UNTRUSTED}</li>
+ * </ol>
+ * 署名情報の発行者やシリアル番号は署名者の自己申告にすぎないため、信頼リストとの照合は絞り込みにのみ使用し、
+ * 信頼の根拠はCore APIによるチェーンの検証結果とします（Core APIを{@code C2PA_TRUST_ANCHORS}付きで起動してください）。
+ * Core APIの検証結果はアクティブなマニフェストのみを対象とするため、署名履歴の項目は{@link TrustVerdict#TRUSTED}になりません。
+ * <p>
+ * 証明書単位の評価結果（発行者・シリアル番号・アルゴリズム）はキャッシュし、同じ署名者の画像が続く場合は
+ * ハッシュ表の参照のみで判定します。失効リストの照合はブルームフィルターで前段の選別を行います。
+ * 失効リストのファイルは定期的に更新を確認し、変更があればキャッシュを破棄します。
+ *
+ * @see TrustProperties
+ */
+@Slf4j
+@Component
+public class TrustEvaluator {
+
+    private final TrustProperties properties;
+    private final Map<String, Set<String>> anchors;
+    private final Set<String> allowedAlgorithms;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private volatile RevocationList revocationList = RevocationList.EMPTY;
+    private volatile ConcurrentMap<String, TrustVerdict> verdicts = new ConcurrentHashMap<>();
+
+    public TrustEvaluator(TrustProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.anchors = new HashMap<>();
+        for (TrustProperties.Anchor anchor : properties.getAnchors()) {
+            anchors.computeIfAbsent(anchor.getIssuer(), issuer -> new HashSet<>())
+                    .addAll(anchor.getSerialNumbers().stream().map(TrustEvaluator::normalizeSerial).toList());
+        }
+        this.allowedAlgorithms = properties.getAllowedAlgorithms().stream()
+                .map(alg -> alg.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.cacheHits = Counter.builder("c2pa.trust.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("c2pa.trust.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        reloadRevocationList();
+    }
+
+    /**
+     * 検証結果のアクティブなマニフェストと署名履歴に、署名証明書の評価結果を設定します。
+     *
+     * @param response     レスポンスDTO
+     * @param c2paManifest C2PA検証結果
+     * @return 評価結果を設定したレスポンスDTO
+     */
+    public VerifyResponse annotate(VerifyResponse response, C2paManifest c2paManifest) {
+        if (!properties.isEnabled() || c2paManifest.getManifests() == null) {
+            return response;
+        }
+        Map<String, Manifest> manifests = c2paManifest.getManifests();
+        if (c2paManifest.getActiveManifest() != null) {
+            Manifest active = manifests.get(c2paManifest.getActiveManifest());
+            if (active != null) {
+                boolean chainVerified = ValidationStates.TRUSTED.equals(c2paManifest.getValidationState());
+                response.setTrust(confirm(evaluate(active.getSignatureInfo()), chainVerified));
+            }
+        }
+        List<VerifyResponse.ManifestHistory> history = response.getHistory();
+        if (history != null) {
+            for (VerifyResponse.ManifestHistory item : history) {
+                Manifest manifest = item.getLabel() != null ? manifests.get(item.getLabel()) : null;
+                if (manifest != null) {
+                    boolean active = item.getLabel().equals(c2paManifest.getActiveManifest());
+                    item.setTrust(active ? response.getTrust() : confirm(evaluate(manifest.getSignatureInfo()), false));
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * 署名情報から証明書の信頼性を評価します。
+     * <p>
+     * 署名情報のみに基づく評価のため、{@link TrustVerdict#TRUSTED}は信頼リストの条件を満たすことを表すにすぎません。
+     * 検証結果に対しては{@link #annotate(VerifyResponse, C2paManifest)}を使用してください。
+     *
+     * @param signatureInfo 署名情報
+     * @return 評価結果
+     */
+    public TrustVerdict evaluate(SignatureInfo signatureInfo) {
+        if (signatureInfo == null || signatureInfo.getCertSerialNumber() == null || signatureInfo.getIssuer() == null) {
+            return TrustVerdict.UNKNOWN;
+        }
+        String key = signatureInfo.getIssuer() + '\n' + signatureInfo.getCertSerialNumber() + '\n' + signatureInfo.getAlg();
+        ConcurrentMap<String, TrustVerdict> cache = verdicts;
+        TrustVerdict cached = cache.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        TrustVerdict verdict = decide(signatureInfo);
+        if (cache.size() >= properties.getVerdictCacheSize()) {
+            cache.clear();
+        }
+        cache.put(key, verdict);
+        return verdict;
+    }
+
+    /**
+     * 失効リストのファイルが更新されていれば読み込み直し、評価結果のキャッシュを破棄します。
+     * <p>
+     * ファイルは1行に1件、発行者とシリアル番号をタブ区切りで記載します。シリアル番号は発行者ごとに採番されるため、
+     * シリアル番号のみの行は無視します。
+     */
+    @Scheduled(fixedDelayString = "${c2pa.trust.reload-interval:PT1M}")
+    public void reloadRevocationList() {
+        Path path = properties.getRevocationList();
+        if (path == null) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(revocationList.modified())) {
+                return;
+            }
+            Set<String> certificates;
+            try (var lines = Files.lines(path)) {
+                certificates = lines.map(String::strip)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .map(TrustEvaluator::parseRevokedCertificate)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toUnmodifiableSet());
+            }
+            revocationList = new RevocationList(certificates, new BloomFilter(certificates, 0.001), modified);
+            verdicts = new ConcurrentHashMap<>();
+            log.info("Loaded {} revoked certificates from {}", certificates.size(), path);
+        } catch (IOException e) {
+            log.warn("Failed to load revocation list from {}", path, e);
+        }
+    }
+
+    private TrustVerdict decide(SignatureInfo signatureInfo) {
+        String serial = normalizeSerial(signatureInfo.getCertSerialNumber());
+        String certificate = certificateKey(signatureInfo.getIssuer(), serial);
+        RevocationList revoked = revocationList;
+        if (revoked.filter().mightContain(certificate) && revoked.certificates().contains(certificate)) {
+            return TrustVerdict.REVOKED;
+        }
+        if (signatureInfo.getAlg() == null || !allowedAlgorithms.contains(signatureInfo.getAlg().toLowerCase(Locale.ROOT))) {
+            return TrustVerdict.DISALLOWED_ALGORITHM;
+        }
+        if (!anchors.isEmpty()) {
+            Set<String> pinnedSerials = anchors.get(signatureInfo.getIssuer());
+            if (pinnedSerials == null || (!pinnedSerials.isEmpty() && !pinnedSerials.contains(serial))) {
+                return TrustVerdict.UNTRUSTED;
+            }
+        }
+        return TrustVerdict.TRUSTED;
+    }
+
+    /**
+     * 証明書単位の評価結果を、Core APIによるチェーンの検証結果で確定させます。
+     *
+     * @param verdict       証明書単位の評価結果
+     * @param chainVerified 検証状態が{@code "Trusted"}で、Core APIがチェーンを検証できたかどうか
+     * @return 確定した評価結果
+     */
+    private static TrustVerdict confirm(TrustVerdict verdict, boolean chainVerified) {
+        return verdict == TrustVerdict.TRUSTED && !chainVerified ? TrustVerdict.UNTRUSTED : verdict;
+    }
+
+    /**
+     * 失効リストの1行（発行者とシリアル番号のタブ区切り）を照合用のキーに変換します。
+     */
+    private static String parseRevokedCertificate(String line) {
+        int tab = line.lastIndexOf('\t');
+        if (tab <= 0 || tab == line.length() - 1) {
+            log.warn("Ignoring revocation entry without issuer: {}", line);
+            return null;
+        }
+        return certificateKey(line.substring(0, tab).strip(), normalizeSerial(line.substring(tab + 1)));
+    }
+
+    private static String certificateKey(String issuer, String serial) {
+        return issuer + '\n' + serial;
+    }
+
+    /**
+     * シリアル番号の表記揺れ（前後の空白・16進表記の大文字小文字）を吸収します。
+     */
+    private static String normalizeSerial(String serial) {
+        return serial.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 読み込み済みの失効リスト。
+     */
+    private record RevocationList(Set<String> certificates, BloomFilter filter, FileTime modified) {
+
+        static final RevocationList EMPTY = new RevocationList(Set.of(), new BloomFilter(Set.of(), 0.001), null);
+    }
+}
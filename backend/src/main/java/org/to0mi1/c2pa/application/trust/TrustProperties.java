@@ -0,0 +1,71 @@
+package org.to0mi1.c2pa.application.trust;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 署名証明書の信頼性評価の設定。
+ * <p>
+ * {@code c2pa.trust}プレフィックスで設定します。
+ * 証明書チェーンの検証はCore APIが{@code C2PA_TRUST_ANCHORS}に指定したトラストアンカーに対して行い、
+ * この設定はその結果をさらに絞り込む（信頼する発行者の限定・失効・アルゴリズムの制限）ために使用します。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.trust")
+public class TrustProperties {
+
+    /**
+     * 信頼性の評価を行うかどうか。無効の場合、評価結果は返しません。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 信頼する証明書の発行者のリスト。空の場合はCore APIがチェーンを検証できたすべての証明書を信頼します。
+     * <p>
+     * 発行者名は署名者の自己申告のため、この設定だけでは信頼の根拠になりません。
+     */
+    private List<Anchor> anchors = new ArrayList<>();
+
+    /**
+     * 許可する署名アルゴリズム（大文字小文字は区別しません）。
+     */
+    private List<String> allowedAlgorithms = new ArrayList<>(
+            List.of("es256", "es384", "es512", "ps256", "ps384", "ps512", "ed25519"));
+
+    /**
+     * 失効した証明書の発行者とシリアル番号をタブ区切りで1行に1件記載したファイル。{@code #}で始まる行は無視します。
+     */
+    private Path revocationList;
+
+    /**
+     * 失効リストの更新を確認する間隔。
+     */
+    private Duration reloadInterval = Duration.ofMinutes(1);
+
+    /**
+     * 評価結果をキャッシュする証明書数の上限。
+     */
+    private int verdictCacheSize = 100_000;
+
+    /**
+     * 信頼する証明書の発行者。
+     */
+    @Data
+    public static class Anchor {
+
+        /**
+         * 証明書の発行者（完全一致）。
+         */
+        private String issuer;
+
+        /**
+         * 信頼する証明書のシリアル番号。空の場合は発行者のすべての証明書を信頼します。
+         */
+        private List<String> serialNumbers = new ArrayList<>();
+    }
+}
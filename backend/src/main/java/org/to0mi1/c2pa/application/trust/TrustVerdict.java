@@ -0,0 +1,32 @@
+package org.to0mi1.c2pa.application.trust;
+
+/**
+ * 署名証明書の信頼性の評価結果。
+ */
+public enum TrustVerdict {
+
+    /**
+     * Core APIが証明書チェーンをトラストアンカーまで検証でき、信頼リストの条件を満たす、失効していない証明書で署名されている。
+     */
+    TRUSTED,
+
+    /**
+     * 証明書チェーンを検証できない、検証状態が有効でない、または発行者・シリアル番号が信頼リストに含まれていない。
+     */
+    UNTRUSTED,
+
+    /**
+     * 証明書が失効リストに含まれている。
+     */
+    REVOKED,
+
+    /**
+     * 署名アルゴリズムが許可されていない。
+     */
+    DISALLOWED_ALGORITHM,
+
+    /**
+     * 署名情報が不足しているため評価できない。
+     */
+    UNKNOWN
+}
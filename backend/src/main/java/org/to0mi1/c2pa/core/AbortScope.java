@@ -0,0 +1,73 @@
+package org.to0mi1.c2pa.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 実行中の呼び出しが発行したCore APIへのリクエストを、呼び出しの外から中断するための範囲。
+ * <p>
+ * ブロッキングのソケットI/Oはスレッドの割り込みでは中断されないため、{@link HedgedCall}で採用されなかった
+ * 呼び出しは接続を読み取りタイムアウトまで占有し続けます。リクエストファクトリーは、リクエストの作成時に
+ * 中断の手段を{@link #register(Runnable)}で現在のスレッドの範囲に登録し、{@link #abort()}で接続ごと中断できるようにします。
+ * 範囲の外で作成されたリクエストは登録されません。
+ */
+final class AbortScope {
+
+    private static final ThreadLocal<AbortScope> CURRENT = new ThreadLocal<>();
+
+    private final List<Runnable> aborts = new ArrayList<>(1);
+    private boolean aborted;
+
+    /**
+     * この範囲を現在のスレッドに設定して呼び出しを実行します。
+     */
+    <T> T run(Supplier<T> call) {
+        AbortScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 範囲内で発行したリクエストをすべて中断します。以後に登録されたリクエストは登録時に中断します。
+     */
+    void abort() {
+        List<Runnable> registered;
+        synchronized (this) {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            registered = List.copyOf(aborts);
+            aborts.clear();
+        }
+        registered.forEach(Runnable::run);
+    }
+
+    /**
+     * 現在のスレッドの範囲に、リクエストを中断する手段を登録します。範囲の外では何もしません。
+     *
+     * @param abort リクエストを中断する処理
+     */
+    static void register(Runnable abort) {
+        AbortScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        synchronized (scope) {
+            if (!scope.aborted) {
+                scope.aborts.add(abort);
+                return;
+            }
+        }
+        abort.run();
+    }
+}
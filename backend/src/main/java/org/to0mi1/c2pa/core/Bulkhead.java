@@ -0,0 +1,96 @@
+package org.to0mi1.c2pa.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Core APIへの呼び出しを種類ごとに隔離するセマフォ方式の隔壁（バルクヘッド）。
+ * <p>
+ * 同時実行数と待機数の上限を持ち、上限を超えた呼び出しは{@link BulkheadFullException}で即座に拒否します。
+ * 署名の集中によって検証の待ち時間が悪化しないよう、署名用と検証用で別々のインスタンスを使用します。
+ * <p>
+ * 実行中・待機中の件数と拒否件数は{@code c2pa.bulkhead.*}メトリクスとして公開されます。
+ */
+final class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter rejected;
+
+    Bulkhead(String name, CoreServerProperties.Lane lane, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = lane.getMaxConcurrent();
+        this.maxQueued = lane.getMaxQueued();
+        this.queueTimeoutNanos = lane.getQueueTimeout().toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("c2pa.bulkhead.active", permits, p -> maxConcurrent - p.availablePermits())
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("c2pa.bulkhead.queued", queued, AtomicInteger::get)
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("c2pa.bulkhead.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 実行枠を取得して処理を実行します。
+     *
+     * @param call 実行する処理
+     * @param <T>  処理結果の型
+     * @return 処理結果
+     * @throws BulkheadFullException 待機数の上限を超えた場合、または待ち時間内に実行枠を取得できなかった場合
+     */
+    <T> T execute(Supplier<T> call) {
+        acquire();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * すべての実行枠が使用中かどうかを返します。
+     */
+    boolean isSaturated() {
+        return permits.availablePermits() == 0;
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw reject();
+        }
+        try {
+            if (!permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw reject();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject();
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private BulkheadFullException reject() {
+        rejected.increment();
+        return new BulkheadFullException(name);
+    }
+}
@@ -0,0 +1,17 @@
+package org.to0mi1.c2pa.core;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Core APIへの呼び出しが隔壁（バルクヘッド）の上限に達し、拒否されたことを示す例外。
+ *
+ * @see Bulkhead
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String name) {
+        super("Core API " + name + " capacity exceeded");
+    }
+}
@@ -1,51 +1,165 @@
 package org.to0mi1.c2pa.core;
 
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.ByteArrayResource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestClient;
 import org.to0mi1.c2pa.core.model.C2paManifest;
+import org.to0mi1.c2pa.core.model.ValidationStates;
+import org.to0mi1.c2pa.timing.RequestTimings;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * C2PA Core APIとの通信を行うアダプタークラス。
  * <p>
- * Python実装のC2PA Core APIに対して、画像の署名と検証のリクエストを送信します。
+ * 画像の署名と検証を{@link C2paEngine}に委譲し、その呼び出しを制御します。
+ * <p>
+ * 署名と検証はそれぞれ独立した{@link Bulkhead}とコネクションプールを経由するため、
+ * 署名の集中が検証の待ち時間に影響しません。
+ * <p>
+ * 呼び出しごとに{@link CoreCallEvent}をJava Flight Recorderに記録します。
  *
+ * @see C2paEngine
  * @see C2paManifest
  */
 @Component
 public class C2paApiAdapter {
 
-    private final RestClient c2paRestClient;
+    private static final List<String> KNOWN_VALIDATION_STATES = List.of(
+            ValidationStates.VALID, ValidationStates.TRUSTED, ValidationStates.INVALID);
 
-    public C2paApiAdapter(@Qualifier("c2paRestClient") RestClient c2paRestClient) {
-        this.c2paRestClient = c2paRestClient;
+    private final C2paEngine engine;
+    private final Bulkhead signBulkhead;
+    private final Bulkhead verifyBulkhead;
+    private final HedgedCall verifyHedge;
+    private final RetryingCall verifyRetry;
+    private final VerifyBatcher verifyBatcher;
+    private final JsonMapper jsonMapper;
+    private final Map<String, Counter> rawVerifyCounters = new HashMap<>();
+    private final Counter rawVerifyUnknown;
+
+    public C2paApiAdapter(C2paEngine engine,
+                          CoreServerProperties coreServerProperties,
+                          MeterRegistry meterRegistry,
+                          JsonMapper jsonMapper) {
+        this.engine = engine;
+        this.jsonMapper = jsonMapper;
+        for (String state : KNOWN_VALIDATION_STATES) {
+            rawVerifyCounters.put(state, rawVerifyCounter(state, meterRegistry));
+        }
+        this.rawVerifyUnknown = rawVerifyCounter("unknown", meterRegistry);
+        this.signBulkhead = new Bulkhead("sign", coreServerProperties.getSign(), meterRegistry);
+        this.verifyBulkhead = new Bulkhead("verify", coreServerProperties.getVerify(), meterRegistry);
+        this.verifyHedge = new HedgedCall("verify", coreServerProperties.getHedge(),
+                coreServerProperties.getVerify().getMaxConcurrent(), meterRegistry);
+        this.verifyRetry = new RetryingCall("verify", coreServerProperties.getRetry(), meterRegistry);
+        this.verifyBatcher = coreServerProperties.getBatch().isEnabled()
+                ? new VerifyBatcher(engine, coreServerProperties.getBatch(),
+                        coreServerProperties.getVerify().getMaxConcurrent(), meterRegistry)
+                : null;
     }
 
     /**
      * 画像のC2PA署名を検証します。
+     * <p>
+     * 検証は冪等なため、ヘッジが有効な場合は応答の遅い呼び出しを別の接続で再送し、先に返った結果を採用します。
+     * また、接続断やCore APIの再起動などの一時的な障害は、バックオフを挟んで再試行します。
+     * <p>
+     * マイクロバッチが有効な場合、小さな画像は同時に届いた他の検証とまとめて1回で送信します（ヘッジは行いません）。
      *
      * @param image    検証対象の画像データ
      * @param fileName ファイル名
      * @return C2PAマニフェスト（検証結果を含む）
+     * @throws BulkheadFullException 検証の同時実行数と待機数が上限に達している場合
+     * @throws CoreApiException       Core APIの呼び出しに失敗した場合
      * @see C2paManifest
      */
     public C2paManifest verify(byte[] image, String fileName) {
-        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
-        parts.add("image", new ByteArrayResource(image) {
-            @Override
-            public String getFilename() {
-                return fileName;
-            }
-        });
+        byte[] body = fetchVerification(image, fileName, true);
+        return RequestTimings.current().time("deserialize", () -> jsonMapper.readValue(body, C2paManifest.class));
+    }
+
+    /**
+     * 画像のC2PA署名を検証し、Core APIの応答JSONをそのまま返します。
+     * <p>
+     * 応答を{@link C2paManifest}に変換しないため、モデルに定義されていない項目も欠落せず、
+     * 大きなマニフェストストアでも変換と再シリアライズのコストがかかりません。
+     * 検証状態は応答の先頭と末尾の一定範囲のみを走査して読み取り、{@code c2pa.verify.raw}メトリクスに記録します。
+     *
+     * @param image    検証対象の画像データ
+     * @param fileName ファイル名
+     * @return Core APIの応答JSON
+     * @throws BulkheadFullException 検証の同時実行数と待機数が上限に達している場合
+     * @throws CoreApiException       Core APIの呼び出しに失敗した場合
+     * @see RawManifestFields
+     */
+    public byte[] verifyRaw(byte[] image, String fileName) {
+        byte[] body = fetchVerification(image, fileName, false);
+        String validationState = RawManifestFields.validationState(body);
+        rawVerifyCounters.getOrDefault(validationState, rawVerifyUnknown).increment();
+        return body;
+    }
 
-        return c2paRestClient.post()
-                .uri("/verify")
-                .body(parts)
-                .retrieve()
-                .body(C2paManifest.class);
+    private static Counter rawVerifyCounter(String validationState, MeterRegistry meterRegistry) {
+        return Counter.builder("c2pa.verify.raw")
+                .tag("validation_state", validationState)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 検証の実行枠がすべて使用中かどうかを返します。
+     * <p>
+     * 事前検証のような省略可能な検証が、リクエストによる検証の実行枠を奪わないよう確認に使用します。
+     *
+     * @return すべての実行枠が使用中であれば{@code true}
+     */
+    public boolean isVerifySaturated() {
+        return verifyBulkhead.isSaturated();
+    }
+
+    /**
+     * Core APIの検証結果を取得します。
+     *
+     * @param batchable マイクロバッチの対象とするかどうか（応答JSONをそのまま返す場合は対象外）
+     */
+    private byte[] fetchVerification(byte[] image, String fileName, boolean batchable) {
+        Supplier<byte[]> call = batchable && verifyBatcher != null && verifyBatcher.accepts(image)
+                ? () -> verifyBatcher.verify(image, fileName)
+                : () -> verifyHedge.execute(() -> engine.verify(image, fileName));
+        CoreCallEvent event = CoreCallEvent.start("verify", image, fileName);
+        try {
+            byte[] body = RequestTimings.current().time("core",
+                    () -> verifyRetry.execute(() -> verifyBulkhead.execute(call)));
+            event.succeeded(body);
+            return body;
+        } catch (RuntimeException e) {
+            event.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 画像のC2PAマニフェストを、ハードバインディングの検証を行わずに読み取ります。
+     * <p>
+     * JPEGのAPP11セグメントやPNGのcaBXチャンクなど、マニフェストを格納した部分のみを抜き出して
+     * Core APIに送信するため、画素データ全体を送る{@link #verify(byte[], String)}に比べて通信量と
+     * Core API側の処理量を大幅に削減できます。未対応の形式の場合は画像全体を送信します。
+     * <p>
+     * 画素データを送らないため、返却される検証結果のハードバインディングに関する項目は信頼できません。
+     *
+     * @param image    検査対象の画像データ
+     * @param fileName ファイル名
+     * @return C2PAマニフェスト（ハードバインディング未検証）
+     * @see ManifestSegmentExtractor
+     */
+    public C2paManifest inspect(byte[] image, String fileName) {
+        byte[] manifestOnly = ManifestSegmentExtractor.extract(image);
+        return verify(manifestOnly != null ? manifestOnly : image, fileName);
     }
 
     /**
@@ -59,35 +173,33 @@ public class C2paApiAdapter {
      * @param aiGenerativeTraining AI生成学習の制限
      * @param aiGenerativeTrainingConstraintsInfo AI生成学習の制限詳細
      * @return 署名済み画像のバイト配列
+     * @throws BulkheadFullException 署名の同時実行数と待機数が上限に達している場合
+     * @throws CoreApiException       Core APIの呼び出しに失敗した場合
      */
     public byte[] sign(String title, byte[] image, String fileName,
                        String aiInference, String aiInferenceConstraintsInfo,
                        String aiGenerativeTraining, String aiGenerativeTrainingConstraintsInfo) {
-        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
-        parts.add("title", title);
-        parts.add("image", new ByteArrayResource(image) {
-            @Override
-            public String getFilename() {
-                return fileName;
-            }
-        });
-        if (aiInference != null) {
-            parts.add("ai_inference", aiInference);
-        }
-        if (aiInferenceConstraintsInfo != null) {
-            parts.add("ai_inference_constraints_info", aiInferenceConstraintsInfo);
-        }
-        if (aiGenerativeTraining != null) {
-            parts.add("ai_generative_training", aiGenerativeTraining);
-        }
-        if (aiGenerativeTrainingConstraintsInfo != null) {
-            parts.add("ai_generative_training_constraints_info", aiGenerativeTrainingConstraintsInfo);
+        // 署名は呼び出しごとに異なる結果とTSAへの問い合わせを伴うため、再試行は行わない
+        CoreCallEvent event = CoreCallEvent.start("sign", image, fileName);
+        try {
+            byte[] signed = RequestTimings.current().time("core", () -> signBulkhead.execute(() -> engine.sign(
+                    title, image, fileName,
+                    aiInference, aiInferenceConstraintsInfo,
+                    aiGenerativeTraining, aiGenerativeTrainingConstraintsInfo)));
+            event.succeeded(signed);
+            return signed;
+        } catch (RuntimeException e) {
+            RuntimeException classified = CoreErrorClassifier.classify(e);
+            event.failed(classified);
+            throw classified;
         }
+    }
 
-        return c2paRestClient.post()
-                .uri("/sign")
-                .body(parts)
-                .retrieve()
-                .body(byte[].class);
+    @PreDestroy
+    public void close() {
+        if (verifyBatcher != null) {
+            verifyBatcher.close();
+        }
+        verifyHedge.close();
     }
 }
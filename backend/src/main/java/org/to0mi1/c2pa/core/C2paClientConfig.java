@@ -1,22 +1,141 @@
 package org.to0mi1.c2pa.core;
 
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 
+import java.net.URI;
+
+/**
+ * Core APIとの通信に使用する{@link RestClient}の設定。
+ * <p>
+ * 署名と検証で別々のコネクションプールを持つ{@link RestClient}を用意し、
+ * 一方の負荷がもう一方の接続待ちに波及しないようにします。
+ * <p>
+ * {@code c2pa.core-server.socket-path}を指定した場合は、TCPの代わりにUnixドメインソケットで接続します。
+ * {@code c2pa.core-server.workers.enabled}を指定した場合は、バックエンドが起動したローカルのワーカーに振り分けます。
+ */
 @Configuration
+@EnableConfigurationProperties({CoreServerProperties.class, NativeEngineProperties.class})
+@ImportRuntimeHints(C2paRuntimeHints.class)
 public class C2paClientConfig {
 
-    @Value("${c2pa.core-server.url}")
-    private String coreServerUrl;
+    private final CoreServerProperties coreServerProperties;
+    private final MeterRegistry meterRegistry;
+
+    public C2paClientConfig(CoreServerProperties coreServerProperties, MeterRegistry meterRegistry) {
+        this.coreServerProperties = coreServerProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "c2pa.core-server.workers", name = "enabled", havingValue = "true")
+    CoreWorkerPool coreWorkerPool() {
+        if (coreServerProperties.getSocketPath() != null) {
+            throw new IllegalStateException("c2pa.core-server.workers cannot be combined with socket-path");
+        }
+        return new CoreWorkerPool(coreServerProperties.getWorkers(), meterRegistry);
+    }
+
+    @Bean(name = "c2paSignRestClient")
+    public RestClient c2paSignRestClient(ObjectProvider<CoreWorkerPool> coreWorkerPool) {
+        return createRestClient("sign", coreServerProperties.getSign(), 0, false, coreWorkerPool.getIfAvailable());
+    }
+
+    @Bean(name = "c2paVerifyRestClient")
+    public RestClient c2paVerifyRestClient(ObjectProvider<CoreWorkerPool> coreWorkerPool) {
+        CoreServerProperties.Lane verify = coreServerProperties.getVerify();
+        return createRestClient("verify", verify,
+                coreServerProperties.getHedge().headroom(verify.getMaxConcurrent()), true, coreWorkerPool.getIfAvailable());
+    }
+
+    /**
+     * @param hedgeHeadroom 同時に実行されうるヘッジの本数。通常の呼び出しの接続を奪わないよう、その分だけ接続を多く確保する
+     * @param idempotent    Core APIで処理されていないことが確実なリクエストを送り直してよいかどうか。署名では{@code false}とする
+     */
+    private RestClient createRestClient(String name, CoreServerProperties.Lane lane, int hedgeHeadroom,
+                                        boolean idempotent, CoreWorkerPool coreWorkerPool) {
+        int maxConnections = lane.getMaxConcurrent() + hedgeHeadroom;
+        RestClient.Builder builder = RestClient.builder()
+                .requestFactory(coreServerProperties.getSocketPath() != null
+                        ? createUnixSocketRequestFactory(name, lane, maxConnections, idempotent)
+                        : createTcpRequestFactory(name, lane, maxConnections))
+                .baseUrl(coreServerProperties.getUrl());
+        if (coreWorkerPool != null) {
+            builder.requestInterceptor(coreWorkerPool);
+        }
+        return builder.build();
+    }
 
-    @Bean(name = "c2paRestClient")
-    public RestClient c2paRestClient() {
-        return RestClient.builder()
-//                .requestFactory(new HttpComponentsClientHttpRequestFactory())
-                .baseUrl(coreServerUrl)
+    private ClientHttpRequestFactory createUnixSocketRequestFactory(String name, CoreServerProperties.Lane lane,
+                                                                    int maxConnections, boolean idempotent) {
+        UnixSocketClientHttpRequestFactory requestFactory = new UnixSocketClientHttpRequestFactory(
+                coreServerProperties.getSocketPath(), maxConnections, lane.getReadTimeout(), idempotent);
+        Gauge.builder("c2pa.core.pool.leased", requestFactory, UnixSocketClientHttpRequestFactory::leased)
+                .tag("name", name)
+                .register(meterRegistry);
+        return requestFactory;
+    }
+
+    private ClientHttpRequestFactory createTcpRequestFactory(String name, CoreServerProperties.Lane lane,
+                                                             int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(lane.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(lane.getReadTimeout()))
+                        .build())
                 .build();
+        Gauge.builder("c2pa.core.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("c2pa.core.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                .tag("name", name)
+                .register(meterRegistry);
+
+        return new AbortableRequestFactory(HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(lane.getQueueTimeout()))
+                        .build())
+                .build());
+    }
+
+    /**
+     * 作成したリクエストを{@link AbortScope}に登録し、ヘッジで採用されなかったリクエストを接続ごと中断できるようにする。
+     */
+    private static final class AbortableRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+        AbortableRequestFactory(HttpClient httpClient) {
+            super(httpClient);
+        }
+
+        @Override
+        protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+            if (request instanceof Cancellable cancellable) {
+                AbortScope.register(cancellable::cancel);
+            }
+            return request;
+        }
     }
 }
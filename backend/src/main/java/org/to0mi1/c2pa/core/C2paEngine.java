@@ -0,0 +1,92 @@
+package org.to0mi1.c2pa.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * C2PAの署名と検証を実際に行うエンジン。
+ * <p>
+ * {@link C2paApiAdapter}は隔壁・ヘッジ・再試行などの呼び出し制御を担い、
+ * 署名・検証の処理そのものはこのインターフェースの実装に委譲します。
+ * 既定の実装は、Python実装のCore APIをHTTPで呼び出す{@link HttpC2paEngine}です。
+ * {@code c2pa.native-engine.enabled=true}の場合は、c2paライブラリをForeign Function &amp; Memory APIで
+ * プロセス内から呼び出す{@link NativeC2paEngine}を使用します。
+ *
+ * @see HttpC2paEngine
+ * @see NativeC2paEngine
+ */
+public interface C2paEngine {
+
+    /**
+     * 画像のC2PAマニフェストストアを読み取り、検証結果をJSONで返します。
+     *
+     * @param image    検証対象の画像データ
+     * @param fileName ファイル名
+     * @return マニフェストストアと検証結果のJSON（c2paライブラリの出力形式）
+     */
+    byte[] verify(byte[] image, String fileName);
+
+    /**
+     * 複数の画像をまとめて検証します。
+     * <p>
+     * 既定の実装は画像ごとに{@link #verify(byte[], String)}を呼び出します。
+     * 1回の呼び出しで複数の画像を処理できるエンジンは、呼び出しごとのオーバーヘッドを省くために上書きします。
+     *
+     * @param images 検証対象の画像
+     * @return 画像ごとの検証結果（{@code images}と同じ順序）
+     * @throws RuntimeException 呼び出し全体が失敗した場合
+     */
+    default List<Outcome> verifyBatch(List<Image> images) {
+        List<Outcome> outcomes = new ArrayList<>(images.size());
+        for (Image image : images) {
+            try {
+                outcomes.add(Outcome.success(verify(image.data(), image.fileName())));
+            } catch (RuntimeException e) {
+                outcomes.add(Outcome.failure(e));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * 画像にC2PA署名を付与します。
+     *
+     * @param title    画像のタイトル
+     * @param image    署名対象の画像データ
+     * @param fileName ファイル名
+     * @param aiInference AI推論の制限
+     * @param aiInferenceConstraintsInfo AI推論の制限詳細
+     * @param aiGenerativeTraining AI生成学習の制限
+     * @param aiGenerativeTrainingConstraintsInfo AI生成学習の制限詳細
+     * @return 署名済み画像のバイト配列
+     */
+    byte[] sign(String title, byte[] image, String fileName,
+                String aiInference, String aiInferenceConstraintsInfo,
+                String aiGenerativeTraining, String aiGenerativeTrainingConstraintsInfo);
+
+    /**
+     * 検証対象の画像。
+     *
+     * @param data     画像データ
+     * @param fileName ファイル名
+     */
+    record Image(byte[] data, String fileName) {
+    }
+
+    /**
+     * まとめて検証した画像1件分の結果。成功した場合は{@code body}、失敗した場合は{@code error}を持ちます。
+     *
+     * @param body  検証結果のJSON
+     * @param error 失敗の原因
+     */
+    record Outcome(byte[] body, RuntimeException error) {
+
+        static Outcome success(byte[] body) {
+            return new Outcome(body, null);
+        }
+
+        static Outcome failure(RuntimeException error) {
+            return new Outcome(null, error);
+        }
+    }
+}
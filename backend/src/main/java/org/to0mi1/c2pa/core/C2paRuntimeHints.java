@@ -0,0 +1,43 @@
+package org.to0mi1.c2pa.core;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.to0mi1.c2pa.core.model.Action;
+import org.to0mi1.c2pa.core.model.ActiveManifestValidation;
+import org.to0mi1.c2pa.core.model.Assertion;
+import org.to0mi1.c2pa.core.model.AssertionData;
+import org.to0mi1.c2pa.core.model.C2paManifest;
+import org.to0mi1.c2pa.core.model.ClaimGeneratorInfo;
+import org.to0mi1.c2pa.core.model.CoreError;
+import org.to0mi1.c2pa.core.model.Ingredient;
+import org.to0mi1.c2pa.core.model.Manifest;
+import org.to0mi1.c2pa.core.model.SignatureInfo;
+import org.to0mi1.c2pa.core.model.Thumbnail;
+import org.to0mi1.c2pa.core.model.TrainingMiningEntry;
+import org.to0mi1.c2pa.core.model.ValidationResults;
+import org.to0mi1.c2pa.core.model.ValidationStatus;
+
+/**
+ * ネイティブイメージでCore APIの応答を読み込むためのリフレクションのヒント。
+ * <p>
+ * Core APIの応答は{@link C2paApiAdapter}が{@code JsonMapper}で直接読み込むため、
+ * Spring MVCの戻り値のように型が自動では検出されません。
+ * Lombokが生成するアクセサーとJacksonの注釈を、モデルのクラスごとに登録します。
+ */
+class C2paRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final Class<?>[] MODEL_TYPES = {
+            Action.class, ActiveManifestValidation.class, Assertion.class, AssertionData.class,
+            C2paManifest.class, ClaimGeneratorInfo.class, CoreError.class, Ingredient.class, Manifest.class,
+            SignatureInfo.class, Thumbnail.class, TrainingMiningEntry.class, ValidationResults.class,
+            ValidationStatus.class, HttpC2paEngine.SpooledOutput.class
+    };
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingRegistrar.registerReflectionHints(hints.reflection(), MODEL_TYPES);
+    }
+}
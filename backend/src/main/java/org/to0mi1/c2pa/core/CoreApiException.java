@@ -0,0 +1,30 @@
+package org.to0mi1.c2pa.core;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * C2PA Core APIの呼び出しに失敗したことを示す例外。
+ * <p>
+ * Core APIのエラーを分類した結果に応じて、クライアントに返すステータスコードを保持します。
+ *
+ * @see CoreErrorClassifier
+ */
+public class CoreApiException extends ResponseStatusException {
+
+    private final boolean retryable;
+
+    public CoreApiException(HttpStatusCode status, String reason, boolean retryable, Throwable cause) {
+        super(status, reason, cause);
+        this.retryable = retryable;
+    }
+
+    /**
+     * 一時的な障害による失敗で、再試行により成功する可能性があるかどうかを返します。
+     *
+     * @return 再試行可能であれば{@code true}
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,115 @@
+package org.to0mi1.c2pa.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.Locale;
+
+/**
+ * Core APIの署名・検証の呼び出しを記録するJava Flight Recorderのイベント。
+ * <p>
+ * イベントの期間は隔壁での待機・ヘッジ・再試行を含む呼び出し全体で、GCや割り当てのイベントと
+ * 同じ時間軸で突き合わせられます。記録が無効な場合はほとんどコストがかかりません。
+ *
+ * @see C2paApiAdapter
+ */
+@Name("org.to0mi1.c2pa.CoreCall")
+@Label("C2PA Core API Call")
+@Category({"C2PA", "Core API"})
+@Description("A sign or verify call to the C2PA core API")
+@StackTrace(false)
+final class CoreCallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Payload Size")
+    @DataAmount
+    long payloadSize;
+
+    @Label("File Extension")
+    String fileExtension;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseSize;
+
+    @Label("Outcome")
+    @Description("ok, rejected (bulkhead full), unreachable or error")
+    String outcome;
+
+    @Label("Core Status")
+    @Description("HTTP status returned by the core API, or 0 if no response was received")
+    int status;
+
+    /**
+     * 呼び出しの開始を記録します。
+     */
+    static CoreCallEvent start(String operation, byte[] payload, String fileName) {
+        CoreCallEvent event = new CoreCallEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.payloadSize = payload.length;
+            event.fileExtension = extension(fileName);
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 呼び出しの成功を記録します。
+     */
+    void succeeded(byte[] response) {
+        end();
+        if (shouldCommit()) {
+            outcome = "ok";
+            status = 200;
+            responseSize = response != null ? response.length : 0;
+            commit();
+        }
+    }
+
+    /**
+     * 呼び出しの失敗を記録します。
+     */
+    void failed(RuntimeException e) {
+        end();
+        if (shouldCommit()) {
+            RestClientResponseException response = findResponseException(e);
+            if (e instanceof BulkheadFullException) {
+                outcome = "rejected";
+            } else if (response != null) {
+                outcome = "error";
+                status = response.getStatusCode().value();
+            } else if (e instanceof CoreApiException coreApiException && coreApiException.isRetryable()) {
+                outcome = "unreachable";
+            } else {
+                outcome = "error";
+            }
+            commit();
+        }
+    }
+
+    private static RestClientResponseException findResponseException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RestClientResponseException response) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && dot < fileName.length() - 1 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,88 @@
+package org.to0mi1.c2pa.core;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.to0mi1.c2pa.core.model.CoreError;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * C2PA Core APIの呼び出しで発生したエラーを、再試行可能なものと再試行しても無駄なものに分類するクラス。
+ * <p>
+ * 分類は次の規則で行います。
+ * <ul>
+ *   <li>接続の拒否・リセット・タイムアウトなどのI/Oエラーは再試行可能</li>
+ *   <li>502, 503, 504は再試行可能（Flaskワーカーの再起動中など）</li>
+ *   <li>500のうち、{@link CoreError#getMessage()}が一時的な障害を示すものは再試行可能</li>
+ *   <li>その他の4xxは不正なリクエスト、5xxは画像やマニフェストに起因する失敗として再試行しない</li>
+ * </ul>
+ *
+ * @see CoreError
+ */
+final class CoreErrorClassifier {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+    private static final List<String> TRANSIENT_MESSAGE_FRAGMENTS = List.of(
+            "timed out",
+            "Connection reset",
+            "Broken pipe",
+            "Temporarily unavailable"
+    );
+
+    private CoreErrorClassifier() {
+    }
+
+    /**
+     * 例外を分類し、{@link CoreApiException}に変換します。
+     *
+     * @param e Core APIの呼び出しで発生した例外
+     * @return 分類結果。Core APIとの通信に起因しない例外の場合は元の例外
+     */
+    static RuntimeException classify(RuntimeException e) {
+        if (e instanceof CoreApiException) {
+            return e;
+        }
+        if (e instanceof ResourceAccessException) {
+            return new CoreApiException(HttpStatus.SERVICE_UNAVAILABLE, "Core API is unreachable", true, e);
+        }
+        if (e instanceof RestClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            CoreError coreError = readCoreError(responseException);
+            String reason = describe(coreError, responseException);
+            if (RETRYABLE_STATUSES.contains(status) || (status >= 500 && isTransient(coreError))) {
+                return new CoreApiException(HttpStatus.SERVICE_UNAVAILABLE, reason, true, e);
+            }
+            if (status >= 400 && status < 500) {
+                return new CoreApiException(HttpStatus.BAD_REQUEST, reason, false, e);
+            }
+            return new CoreApiException(HttpStatus.BAD_GATEWAY, reason, false, e);
+        }
+        return e;
+    }
+
+    private static CoreError readCoreError(RestClientResponseException e) {
+        try {
+            return e.getResponseBodyAs(CoreError.class);
+        } catch (RuntimeException ignored) {
+            return null;
+        }
+    }
+
+    private static boolean isTransient(CoreError coreError) {
+        if (coreError == null || coreError.getMessage() == null) {
+            return false;
+        }
+        return TRANSIENT_MESSAGE_FRAGMENTS.stream().anyMatch(coreError.getMessage()::contains);
+    }
+
+    private static String describe(CoreError coreError, RestClientResponseException e) {
+        if (coreError == null || coreError.getError() == null) {
+            return "Core API responded with " + e.getStatusCode().value();
+        }
+        return coreError.getMessage() != null
+                ? coreError.getError() + ": " + coreError.getMessage()
+                : coreError.getError();
+    }
+}
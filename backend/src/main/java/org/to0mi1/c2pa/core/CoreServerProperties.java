@@ -0,0 +1,321 @@
+package org.to0mi1.c2pa.core;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * C2PA Core APIとの通信設定。
+ * <p>
+ * {@code c2pa.core-server}プレフィックスで設定します。
+ * 署名（{@code sign}）と検証（{@code verify}）は処理時間が大きく異なるため、
+ * 同時実行数・待ち行列・コネクションプールをそれぞれ独立して設定できます。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.core-server")
+public class CoreServerProperties {
+
+    /**
+     * Core APIのベースURL。
+     */
+    private String url;
+
+    /**
+     * Core APIが待ち受けるUnixドメインソケットのパス。
+     * <p>
+     * 指定した場合、Core APIとの通信はTCPではなくこのソケットを経由します。
+     * {@link #url}はリクエストのパスと{@code Host}ヘッダーにのみ使用されます。
+     * Core APIと同じホスト（Pod）で動作する場合に指定します。
+     */
+    private Path socketPath;
+
+    /**
+     * 署名リクエストの設定。
+     * <p>
+     * TSAへの問い合わせや材料（ingredient）の埋め込みを伴うため、検証より長いタイムアウトを既定とします。
+     */
+    private Lane sign = new Lane(8, 16, Duration.ofSeconds(5), Duration.ofSeconds(120));
+
+    /**
+     * 検証リクエストの設定。
+     */
+    private Lane verify = new Lane(32, 64, Duration.ofSeconds(2), Duration.ofSeconds(30));
+
+    /**
+     * 検証リクエストのヘッジ設定。
+     */
+    private Hedge hedge = new Hedge();
+
+    /**
+     * 検証リクエストの再試行設定。
+     */
+    private Retry retry = new Retry();
+
+    /**
+     * 検証リクエストのマイクロバッチ設定。
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * バックエンドが起動・監視するローカルのCore APIワーカーの設定。
+     */
+    private Workers workers = new Workers();
+
+    /**
+     * Core APIと共有するスプールディレクトリの設定。
+     */
+    private Spool spool = new Spool();
+
+    /**
+     * 署名・検証それぞれの隔壁（バルクヘッド）とコネクションプールの設定。
+     */
+    @Data
+    public static class Lane {
+
+        /**
+         * Core APIへの同時リクエスト数の上限。コネクションプールの最大接続数も同じ値になります
+         * （検証でヘッジが有効な場合は、{@link Hedge#headroom(int)}の分だけ多くなります）。
+         */
+        private int maxConcurrent;
+
+        /**
+         * 同時リクエスト数の上限に達したときに待機できるリクエスト数の上限。
+         */
+        private int maxQueued;
+
+        /**
+         * 実行枠が空くまでの最大待ち時間。
+         */
+        private Duration queueTimeout;
+
+        /**
+         * 接続タイムアウト。
+         */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 読み取りタイムアウト。
+         */
+        private Duration readTimeout;
+
+        public Lane() {
+        }
+
+        Lane(int maxConcurrent, int maxQueued, Duration queueTimeout, Duration readTimeout) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.queueTimeout = queueTimeout;
+            this.readTimeout = readTimeout;
+        }
+    }
+
+    /**
+     * 検証リクエストのヘッジ（投機的な重複実行）の設定。
+     * <p>
+     * 直近の応答時間が{@link #percentile}パーセンタイルを超えた呼び出しについて、同じリクエストを再送します。
+     */
+    @Data
+    public static class Hedge {
+
+        /**
+         * ヘッジを有効にするかどうか。
+         */
+        private boolean enabled = false;
+
+        /**
+         * ヘッジを発行するまでの待ち時間として使用する、直近の応答時間のパーセンタイル。
+         */
+        private double percentile = 95.0;
+
+        /**
+         * ヘッジを発行するまでの最小待ち時間。
+         */
+        private Duration minDelay = Duration.ofMillis(50);
+
+        /**
+         * パーセンタイルの算出に使用する直近の応答時間の件数。
+         */
+        private int windowSize = 512;
+
+        /**
+         * ヘッジを開始するために必要な応答時間の最小記録件数。
+         */
+        private int minSamples = 64;
+
+        /**
+         * 通常の呼び出しに対するヘッジの割合の上限。
+         */
+        private double budgetRatio = 0.05;
+
+        /**
+         * 連続して発行できるヘッジの上限。同時に実行できるヘッジの本数もこの値（同時リクエスト数の上限以下）になります。
+         */
+        private int maxBurst = 10;
+
+        /**
+         * 同時に実行できるヘッジの本数を返します。コネクションプールはこの本数だけ多く確保します。
+         *
+         * @param maxConcurrent 同時リクエスト数の上限
+         * @return ヘッジが無効の場合は{@code 0}
+         */
+        int headroom(int maxConcurrent) {
+            return enabled ? Math.max(0, Math.min(maxBurst, maxConcurrent)) : 0;
+        }
+    }
+
+    /**
+     * 検証リクエストの再試行の設定。
+     * <p>
+     * 再試行はジッター付きの指数バックオフで行い、再試行の総量は{@link #budgetRatio}で制限します。
+     */
+    @Data
+    public static class Retry {
+
+        /**
+         * 再試行を有効にするかどうか。
+         */
+        private boolean enabled = true;
+
+        /**
+         * 初回を含む最大試行回数。
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * 初回の再試行までの待ち時間の上限。試行ごとに2倍になります。
+         */
+        private Duration initialBackoff = Duration.ofMillis(100);
+
+        /**
+         * 再試行までの待ち時間の上限。
+         */
+        private Duration maxBackoff = Duration.ofSeconds(2);
+
+        /**
+         * 通常の呼び出しに対する再試行の割合の上限。
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * 連続して行える再試行の上限。
+         */
+        private int maxBurst = 10;
+    }
+
+    /**
+     * 同時に届いた検証リクエストを、1回のCore API呼び出しにまとめる設定。
+     * <p>
+     * 最初のリクエストから{@link #maxWait}が経過するか、{@link #maxSize}件に達した時点でまとめて送信します。
+     * 応答時間は最大で{@link #maxWait}だけ延びる代わりに、Core APIのリクエストごとのオーバーヘッドを削減します。
+     * まとめた呼び出しはヘッジの対象外です。
+     */
+    @Data
+    public static class Batch {
+
+        /**
+         * マイクロバッチを有効にするかどうか。
+         */
+        private boolean enabled = false;
+
+        /**
+         * 1回の呼び出しにまとめる画像数の上限。
+         */
+        private int maxSize = 8;
+
+        /**
+         * 最初のリクエストから送信までの最大待ち時間。
+         */
+        private Duration maxWait = Duration.ofMillis(3);
+
+        /**
+         * 1回の呼び出しにまとめる画像の合計サイズの上限。
+         */
+        private DataSize maxTotalSize = DataSize.ofMegabytes(8);
+
+        /**
+         * まとめる対象とする画像サイズの上限。これより大きい画像は個別に送信します。
+         */
+        private DataSize maxImageSize = DataSize.ofKilobytes(256);
+    }
+
+    /**
+     * バックエンドがCore APIのワーカープロセスを起動・監視する設定。
+     * <p>
+     * 有効にすると、{@link #count}個のワーカーをループバックの{@link #basePort}から連番のポートで起動し、
+     * 処理中のリクエストが最も少ないワーカーに振り分けます。{@link CoreServerProperties#url}のホストとポートは使用しません。
+     * 終了したワーカーや、ヘルスチェックに続けて応答しないワーカーは再起動します。
+     */
+    @Data
+    public static class Workers {
+
+        /**
+         * ワーカーを起動するかどうか。
+         */
+        private boolean enabled = false;
+
+        /**
+         * ワーカー数。0以下の場合は利用可能なCPUコア数。
+         */
+        private int count = 0;
+
+        /**
+         * ワーカーの起動コマンド。ポートは環境変数{@code C2PA_CORE_PORT}で渡します。
+         */
+        private List<String> command = List.of("python", "app.py");
+
+        /**
+         * ワーカーの作業ディレクトリ。
+         */
+        private Path workingDirectory = Path.of("../core-api");
+
+        /**
+         * 1つ目のワーカーが待ち受けるポート。
+         */
+        private int basePort = 5100;
+
+        /**
+         * 起動直後のワーカーを、ヘルスチェックの失敗で再起動しない猶予時間。
+         */
+        private Duration startupTimeout = Duration.ofSeconds(30);
+
+        /**
+         * ヘルスチェックの間隔。
+         */
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * ヘルスチェックの応答待ち時間。
+         */
+        private Duration probeTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 応答しないワーカーとみなして再起動する、ヘルスチェックの連続失敗回数。
+         */
+        private int maxFailedProbes = 3;
+    }
+
+    /**
+     * Core APIと共有するスプールディレクトリを介した画像の受け渡しの設定。
+     * <p>
+     * 画像をスプールに一度だけ書き出し、Core APIにはパスとSHA-256のみを送ります。
+     * 署名済み画像もCore APIがスプールに書き出し、パスで返します。
+     * 同じボリューム（tmpfsなど）をCore APIの{@code C2PA_CORE_SPOOL}に指定する必要があります。
+     */
+    @Data
+    public static class Spool {
+
+        /**
+         * スプールディレクトリ。指定しない場合は画像をmultipartの本文で送信します。
+         */
+        private Path directory;
+
+        /**
+         * スプールを使用する画像サイズの下限。これより小さい画像は本文で送信します。
+         */
+        private DataSize minSize = DataSize.ofKilobytes(256);
+    }
+}
@@ -0,0 +1,271 @@
+package org.to0mi1.c2pa.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * バックエンドが起動・監視するローカルのCore APIワーカープロセスのプール。
+ * <p>
+ * ワーカーごとにループバックの別々のポートを割り当てて起動し、{@link ClientHttpRequestInterceptor}として
+ * 各リクエストの送信先を、準備のできたワーカーのうち処理中のリクエストが最も少ないものに書き換えます。
+ * <p>
+ * 監視スレッドは一定間隔で各ワーカーの{@code /health}を確認します。プロセスが終了していれば再起動し、
+ * 起動の猶予時間を過ぎてもヘルスチェックに続けて応答しないワーカーは、停止させてから再起動します。
+ *
+ * @see CoreServerProperties.Workers
+ */
+@Slf4j
+final class CoreWorkerPool implements ClientHttpRequestInterceptor, AutoCloseable {
+
+    private static final String LOOPBACK = "127.0.0.1";
+
+    private final CoreServerProperties.Workers properties;
+    private final List<Worker> workers;
+    private final AtomicInteger nextStart = new AtomicInteger();
+    private final HttpClient probeClient;
+    private final ScheduledExecutorService supervisor;
+    private final Counter restarts;
+
+    CoreWorkerPool(CoreServerProperties.Workers properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int count = properties.getCount() > 0 ? properties.getCount() : Runtime.getRuntime().availableProcessors();
+        this.workers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            workers.add(new Worker(i, properties.getBasePort() + i));
+        }
+        this.probeClient = HttpClient.newBuilder()
+                .connectTimeout(properties.getProbeTimeout())
+                .build();
+        this.supervisor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "c2pa-core-worker-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.restarts = Counter.builder("c2pa.core.workers.restarts")
+                .register(meterRegistry);
+        Gauge.builder("c2pa.core.workers.ready", this, CoreWorkerPool::readyCount)
+                .register(meterRegistry);
+        for (Worker worker : workers) {
+            Gauge.builder("c2pa.core.workers.inflight", worker.inFlight, AtomicInteger::get)
+                    .tag("worker", Integer.toString(worker.index))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * すべてのワーカーを起動し、監視を開始します。
+     */
+    void start() {
+        workers.forEach(this::spawn);
+        long interval = properties.getHealthCheckInterval().toMillis();
+        supervisor.scheduleWithFixedDelay(this::supervise, 0, interval, TimeUnit.MILLISECONDS);
+        log.info("Started {} core workers on ports {}-{}", workers.size(),
+                properties.getBasePort(), properties.getBasePort() + workers.size() - 1);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Worker worker = leastLoaded();
+        URI target = UriComponentsBuilder.fromUri(request.getURI())
+                .host(LOOPBACK)
+                .port(worker.port)
+                .build(true)
+                .toUri();
+        worker.inFlight.incrementAndGet();
+        try {
+            return execution.execute(new HttpRequestWrapper(request) {
+                @Override
+                public URI getURI() {
+                    return target;
+                }
+            }, body);
+        } catch (ConnectException e) {
+            // 次のヘルスチェックまで振り分け先から外し、再試行が別のワーカーに向かうようにする
+            worker.ready = false;
+            throw e;
+        } finally {
+            worker.inFlight.decrementAndGet();
+        }
+    }
+
+    int readyCount() {
+        int ready = 0;
+        for (Worker worker : workers) {
+            if (worker.ready) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    @Override
+    public void close() {
+        supervisor.shutdownNow();
+        for (Worker worker : workers) {
+            worker.ready = false;
+            Process process = worker.process;
+            if (process != null) {
+                process.destroy();
+            }
+        }
+        for (Worker worker : workers) {
+            Process process = worker.process;
+            if (process != null) {
+                terminate(process);
+            }
+        }
+    }
+
+    /**
+     * 準備のできたワーカーのうち、処理中のリクエストが最も少ないものを選びます。
+     * 同数の場合に同じワーカーへ偏らないよう、走査の開始位置をリクエストごとにずらします。
+     */
+    private Worker leastLoaded() {
+        int size = workers.size();
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+        Worker best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Worker worker = workers.get((start + i) % size);
+            if (!worker.ready) {
+                continue;
+            }
+            int load = worker.inFlight.get();
+            if (load < bestLoad) {
+                best = worker;
+                bestLoad = load;
+            }
+        }
+        if (best == null) {
+            throw new CoreApiException(HttpStatus.SERVICE_UNAVAILABLE, "No core worker is available", true, null);
+        }
+        return best;
+    }
+
+    private void supervise() {
+        try {
+            List<CompletableFuture<Boolean>> probes = new ArrayList<>(workers.size());
+            for (Worker worker : workers) {
+                Process process = worker.process;
+                probes.add(process != null && process.isAlive() ? probe(worker) : CompletableFuture.completedFuture(false));
+            }
+            for (int i = 0; i < workers.size(); i++) {
+                check(workers.get(i), probes.get(i).join());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Core worker supervision failed", e);
+        }
+    }
+
+    private void check(Worker worker, boolean healthy) {
+        Process process = worker.process;
+        if (process == null || !process.isAlive()) {
+            worker.ready = false;
+            if (process != null) {
+                log.warn("Core worker {} exited with status {}; restarting", worker.index, process.exitValue());
+                restarts.increment();
+            }
+            spawn(worker);
+            return;
+        }
+        if (healthy) {
+            if (!worker.ready) {
+                log.info("Core worker {} is ready on port {}", worker.index, worker.port);
+            }
+            worker.failedProbes = 0;
+            worker.ready = true;
+            return;
+        }
+        worker.failedProbes++;
+        boolean starting = System.nanoTime() - worker.startedAt < properties.getStartupTimeout().toNanos();
+        if (worker.failedProbes >= properties.getMaxFailedProbes() && !starting) {
+            log.warn("Core worker {} failed {} health checks; restarting", worker.index, worker.failedProbes);
+            worker.ready = false;
+            restarts.increment();
+            process.destroyForcibly();
+            spawn(worker);
+        } else if (worker.ready && worker.failedProbes >= properties.getMaxFailedProbes()) {
+            worker.ready = false;
+        }
+    }
+
+    private CompletableFuture<Boolean> probe(Worker worker) {
+        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder(
+                        URI.create("http://" + LOOPBACK + ":" + worker.port + "/health"))
+                .timeout(properties.getProbeTimeout())
+                .GET()
+                .build();
+        return probeClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> response.statusCode() == 200)
+                .exceptionally(e -> false);
+    }
+
+    private void spawn(Worker worker) {
+        ProcessBuilder builder = new ProcessBuilder(properties.getCommand())
+                .directory(properties.getWorkingDirectory().toFile())
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        builder.environment().put("C2PA_CORE_PORT", Integer.toString(worker.port));
+        try {
+            worker.process = builder.start();
+            worker.startedAt = System.nanoTime();
+            worker.failedProbes = 0;
+        } catch (IOException e) {
+            worker.process = null;
+            log.warn("Failed to start core worker {}: {}", worker.index, e.getMessage());
+        }
+    }
+
+    private static void terminate(Process process) {
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * ワーカープロセス1つ分の状態。{@code ready}と{@code process}以外は監視スレッドのみが更新します。
+     */
+    private static final class Worker {
+
+        final int index;
+        final int port;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile Process process;
+        volatile boolean ready;
+        long startedAt;
+        int failedProbes;
+
+        Worker(int index, int port) {
+            this.index = index;
+            this.port = port;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.to0mi1.c2pa.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 冪等な呼び出しをヘッジ（投機的な重複実行）するクラス。
+ * <p>
+ * 直近の応答時間の指定パーセンタイルを過ぎても応答がない場合、同じ呼び出しを別の接続でもう一度発行し、
+ * 先に成功した方の結果を採用します。採用されなかった呼び出しは{@link AbortScope}で接続ごと中断し、
+ * 接続を読み取りタイムアウトまで占有しないようにします。
+ * <p>
+ * ヘッジによる追加負荷は予算で制限されます。通常の呼び出しごとに{@code budgetRatio}分の予算が積み立てられ、
+ * ヘッジ1回につき1消費するため、追加の呼び出しは全体の{@code budgetRatio}の割合を超えません。
+ * 同時に実行中のヘッジは{@link CoreServerProperties.Hedge#headroom(int)}本までとし、
+ * コネクションプールはその分だけ大きく確保されるため、ヘッジが通常の呼び出しの接続を奪うことはありません。
+ */
+final class HedgedCall {
+
+    private final boolean enabled;
+    private final long minDelayNanos;
+    private final RatioBudget budget;
+    private final LatencyTracker latencyTracker;
+    private final Semaphore hedgePermits;
+    private final ThreadPoolExecutor executor;
+    private final Counter issued;
+    private final Counter won;
+
+    /**
+     * @param maxConcurrent 呼び出し元の{@link Bulkhead}の同時実行数の上限
+     */
+    HedgedCall(String name, CoreServerProperties.Hedge hedge, int maxConcurrent, MeterRegistry meterRegistry) {
+        this.enabled = hedge.isEnabled();
+        this.minDelayNanos = hedge.getMinDelay().toNanos();
+        this.budget = new RatioBudget(hedge.getBudgetRatio(), hedge.getMaxBurst());
+        this.latencyTracker = new LatencyTracker(hedge.getWindowSize(), hedge.getMinSamples(), hedge.getPercentile());
+        int headroom = hedge.headroom(maxConcurrent);
+        this.hedgePermits = new Semaphore(headroom);
+        if (enabled) {
+            // 通常の呼び出しは同時実行数の上限、ヘッジはheadroomの本数までしか同時に実行されない
+            int threads = maxConcurrent + headroom;
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    daemonThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+        this.issued = Counter.builder("c2pa.hedge.issued").tag("name", name).register(meterRegistry);
+        this.won = Counter.builder("c2pa.hedge.won").tag("name", name).register(meterRegistry);
+    }
+
+    /**
+     * 必要に応じてヘッジしながら呼び出しを実行します。
+     *
+     * @param call 冪等な呼び出し
+     * @param <T>  呼び出し結果の型
+     * @return 最初に成功した呼び出しの結果
+     */
+    <T> T execute(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        budget.deposit();
+        long hedgeDelayNanos = latencyTracker.percentileNanos();
+        if (hedgeDelayNanos < 0) {
+            return timed(call);
+        }
+
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        List<AbortScope> scopes = new ArrayList<>(2);
+        try {
+            AbortScope primary = new AbortScope();
+            try {
+                futures.add(completionService.submit(() -> primary.run(() -> timed(call))));
+            } catch (RejectedExecutionException e) {
+                return timed(call);
+            }
+            scopes.add(primary);
+            Future<T> done = completionService.poll(Math.max(minDelayNanos, hedgeDelayNanos), TimeUnit.NANOSECONDS);
+            if (done == null) {
+                if (hedgePermits.tryAcquire()) {
+                    if (submitHedge(completionService, call, futures, scopes)) {
+                        issued.increment();
+                    } else {
+                        hedgePermits.release();
+                    }
+                }
+                done = completionService.take();
+            }
+
+            int pending = futures.size();
+            ExecutionException firstFailure = null;
+            while (true) {
+                pending--;
+                try {
+                    T result = done.get();
+                    if (futures.size() > 1 && done == futures.get(1)) {
+                        won.increment();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    if (firstFailure == null) {
+                        firstFailure = e;
+                    }
+                    if (pending == 0) {
+                        throw unwrap(firstFailure);
+                    }
+                    done = completionService.take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for core response", e);
+        } finally {
+            // 割り込みではソケットの読み取りは止まらないため、接続を中断して呼び出しを速やかに失敗させる。
+            // 開始前の呼び出しをキャンセルするとヘッジの実行枠が返却されないため、Futureはキャンセルしない
+            for (int i = 0; i < futures.size(); i++) {
+                if (!futures.get(i).isDone()) {
+                    scopes.get(i).abort();
+                }
+            }
+        }
+    }
+
+    /**
+     * 使用を終えた実行スレッドを停止します。
+     */
+    void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 予算があればヘッジを発行します。ヘッジの実行枠は呼び出しの完了時に返却します。
+     *
+     * @return ヘッジを発行した場合は{@code true}
+     */
+    private <T> boolean submitHedge(CompletionService<T> completionService, Supplier<T> call,
+                                    List<Future<T>> futures, List<AbortScope> scopes) {
+        if (!budget.tryWithdraw()) {
+            return false;
+        }
+        AbortScope hedge = new AbortScope();
+        try {
+            futures.add(completionService.submit(() -> {
+                try {
+                    return hedge.run(() -> timed(call));
+                } finally {
+                    hedgePermits.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        scopes.add(hedge);
+        return true;
+    }
+
+    private <T> T timed(Supplier<T> call) {
+        long start = System.nanoTime();
+        T result = call.get();
+        latencyTracker.record(System.nanoTime() - start);
+        return result;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory(String name) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("c2pa-hedge-" + name + "-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
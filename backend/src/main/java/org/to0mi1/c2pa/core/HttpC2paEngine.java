@@ -0,0 +1,234 @@
+package org.to0mi1.c2pa.core;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Python実装のC2PA Core APIをHTTPで呼び出す{@link C2paEngine}。
+ * <p>
+ * 既定のエンジンです。{@code c2pa.native-engine.enabled=true}の場合は{@link NativeC2paEngine}が代わりに使用されます。
+ * <p>
+ * 署名と検証は{@link C2paClientConfig}が用意する別々の{@link RestClient}（コネクションプール）を使用します。
+ * <p>
+ * {@code c2pa.core-server.spool.directory}を指定した場合、一定以上の大きさの画像はCore APIと共有する
+ * スプールに書き出し、本文にはパスとSHA-256のみを含めます。署名済み画像も同じスプールを介して受け取ります。
+ * <p>
+ * まとめて検証する場合は、複数の画像を1回の{@code /verify/batch}で送信します。応答は画像ごとに
+ * {@code "<ステータス> <バイト数>\n"}の見出し行と、{@code /verify}の応答と同じ本文を連結した形式です。
+ *
+ * @see SpoolDirectory
+ */
+@Component
+@ConditionalOnProperty(prefix = "c2pa.native-engine", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class HttpC2paEngine implements C2paEngine {
+
+    private final RestClient c2paSignRestClient;
+    private final RestClient c2paVerifyRestClient;
+    private final SpoolDirectory spool;
+    private final long spoolMinSize;
+    private final JsonMapper jsonMapper;
+
+    public HttpC2paEngine(@Qualifier("c2paSignRestClient") RestClient c2paSignRestClient,
+                          @Qualifier("c2paVerifyRestClient") RestClient c2paVerifyRestClient,
+                          CoreServerProperties coreServerProperties,
+                          JsonMapper jsonMapper) {
+        this.c2paSignRestClient = c2paSignRestClient;
+        this.c2paVerifyRestClient = c2paVerifyRestClient;
+        this.jsonMapper = jsonMapper;
+        CoreServerProperties.Spool spoolProperties = coreServerProperties.getSpool();
+        this.spool = spoolProperties.getDirectory() != null ? new SpoolDirectory(spoolProperties.getDirectory()) : null;
+        this.spoolMinSize = spoolProperties.getMinSize().toBytes();
+    }
+
+    @Override
+    public byte[] verify(byte[] image, String fileName) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        SpoolDirectory.Entry spooled = addImage(parts, image, fileName);
+        try {
+            return c2paVerifyRestClient.post()
+                    .uri("/verify")
+                    .body(parts)
+                    .retrieve()
+                    .body(byte[].class);
+        } finally {
+            deleteSpooled(spooled);
+        }
+    }
+
+    @Override
+    public List<Outcome> verifyBatch(List<Image> images) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        for (Image image : images) {
+            parts.add("image", namedResource(image.data(), image.fileName()));
+        }
+        byte[] body = c2paVerifyRestClient.post()
+                .uri("/verify/batch")
+                .body(parts)
+                .retrieve()
+                .body(byte[].class);
+        return parseBatch(body != null ? body : new byte[0], images.size());
+    }
+
+    @Override
+    public byte[] sign(String title, byte[] image, String fileName,
+                       String aiInference, String aiInferenceConstraintsInfo,
+                       String aiGenerativeTraining, String aiGenerativeTrainingConstraintsInfo) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("title", title);
+        SpoolDirectory.Entry spooled = addImage(parts, image, fileName);
+        if (aiInference != null) {
+            parts.add("ai_inference", aiInference);
+        }
+        if (aiInferenceConstraintsInfo != null) {
+            parts.add("ai_inference_constraints_info", aiInferenceConstraintsInfo);
+        }
+        if (aiGenerativeTraining != null) {
+            parts.add("ai_generative_training", aiGenerativeTraining);
+        }
+        if (aiGenerativeTrainingConstraintsInfo != null) {
+            parts.add("ai_generative_training_constraints_info", aiGenerativeTrainingConstraintsInfo);
+        }
+
+        try {
+            if (spooled == null) {
+                return c2paSignRestClient.post()
+                        .uri("/sign")
+                        .body(parts)
+                        .retrieve()
+                        .body(byte[].class);
+            }
+            parts.add("output", "path");
+            SpooledOutput output = c2paSignRestClient.post()
+                    .uri("/sign")
+                    .body(parts)
+                    .retrieve()
+                    .body(SpooledOutput.class);
+            if (output == null || output.path() == null || output.sha256() == null) {
+                throw new IllegalStateException("Core API did not return a spooled output");
+            }
+            return spool.readAndDelete(output.path(), output.sha256());
+        } finally {
+            deleteSpooled(spooled);
+        }
+    }
+
+    /**
+     * 画像をリクエストに追加します。スプールを使用した場合は書き出したファイルを返します。
+     */
+    private SpoolDirectory.Entry addImage(MultiValueMap<String, Object> parts, byte[] image, String fileName) {
+        if (spool == null || image.length < spoolMinSize) {
+            parts.add("image", namedResource(image, fileName));
+            return null;
+        }
+        SpoolDirectory.Entry spooled = spool.write(image, fileName);
+        parts.add("image_path", spooled.path().toString());
+        parts.add("image_sha256", spooled.sha256());
+        parts.add("mime_type", MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        if (fileName != null) {
+            parts.add("file_name", fileName);
+        }
+        return spooled;
+    }
+
+    /**
+     * {@code /verify/batch}の応答を画像ごとの結果に分割します。
+     *
+     * @param body     応答の本文
+     * @param expected 送信した画像の数
+     * @return 画像ごとの結果（送信した順序）
+     * @throws IllegalStateException 応答の形式が不正な場合、または結果の数が送信した画像の数と一致しない場合
+     */
+    List<Outcome> parseBatch(byte[] body, int expected) {
+        List<Outcome> outcomes = new ArrayList<>(expected);
+        int position = 0;
+        while (position < body.length) {
+            int newline = position;
+            while (newline < body.length && body[newline] != '\n') {
+                newline++;
+            }
+            String header = new String(body, position, newline - position, StandardCharsets.US_ASCII);
+            int space = header.indexOf(' ');
+            if (newline == body.length || space < 0) {
+                throw new IllegalStateException("Malformed batch response from core API: " + header);
+            }
+            int status;
+            int length;
+            try {
+                status = Integer.parseInt(header.substring(0, space));
+                length = Integer.parseInt(header.substring(space + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Malformed batch response from core API: " + header, e);
+            }
+            if (status < 100 || status > 599) {
+                throw new IllegalStateException("Malformed batch response from core API: " + header);
+            }
+            int start = newline + 1;
+            if (length < 0 || length > body.length - start) {
+                throw new IllegalStateException("Truncated batch response from core API");
+            }
+            byte[] item = Arrays.copyOfRange(body, start, start + length);
+            outcomes.add(status == 200 ? Outcome.success(item) : Outcome.failure(itemError(status, item)));
+            position = start + length;
+        }
+        if (outcomes.size() != expected) {
+            throw new IllegalStateException("Core API returned " + outcomes.size() + " results for "
+                    + expected + " images");
+        }
+        return outcomes;
+    }
+
+    /**
+     * 画像1件分の失敗を、単独の{@code /verify}が失敗した場合と同じ例外で表します。
+     */
+    private RestClientResponseException itemError(int status, byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        RestClientResponseException exception = new RestClientResponseException(
+                status + " from core API batch item", HttpStatusCode.valueOf(status), "", headers, body,
+                StandardCharsets.UTF_8);
+        exception.setBodyConvertFunction(type ->
+                jsonMapper.readValue(body, jsonMapper.getTypeFactory().constructType(type.getType())));
+        return exception;
+    }
+
+    private static void deleteSpooled(SpoolDirectory.Entry spooled) {
+        if (spooled != null) {
+            SpoolDirectory.deleteQuietly(spooled.path());
+        }
+    }
+
+    private static ByteArrayResource namedResource(byte[] image, String fileName) {
+        return new ByteArrayResource(image) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        };
+    }
+
+    /**
+     * Core APIがスプールに書き出した署名済み画像。
+     *
+     * @param path   ファイルのパス
+     * @param sha256 内容のSHA-256（16進数表記）
+     */
+    record SpooledOutput(String path, String sha256) {
+    }
+}
@@ -0,0 +1,62 @@
+package org.to0mi1.c2pa.core;
+
+import java.util.Arrays;
+
+/**
+ * 直近の応答時間を固定長のリングバッファに保持し、パーセンタイルを算出するクラス。
+ * <p>
+ * パーセンタイルの算出にはソートが必要なため、一定件数の記録ごとに再計算した値をキャッシュします。
+ */
+final class LatencyTracker {
+
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private final long[] samples;
+    private final int minSamples;
+    private final double percentile;
+
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private long cachedNanos = -1;
+
+    /**
+     * @param windowSize 保持する応答時間の件数
+     * @param minSamples パーセンタイルを算出するために必要な最小件数
+     * @param percentile 算出するパーセンタイル（0〜100）
+     */
+    LatencyTracker(int windowSize, int minSamples, double percentile) {
+        this.samples = new long[windowSize];
+        this.minSamples = Math.min(minSamples, windowSize);
+        this.percentile = percentile;
+    }
+
+    /**
+     * 応答時間を記録します。
+     *
+     * @param nanos 応答時間（ナノ秒）
+     */
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRecompute >= RECOMPUTE_INTERVAL && count >= minSamples) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            cachedNanos = sorted[Math.max(0, Math.min(index, count - 1))];
+            sinceRecompute = 0;
+        }
+    }
+
+    /**
+     * 直近の応答時間のパーセンタイルを返します。
+     *
+     * @return パーセンタイル値（ナノ秒）。記録件数が不足している場合は{@code -1}
+     */
+    synchronized long percentileNanos() {
+        return cachedNanos;
+    }
+}
@@ -0,0 +1,150 @@
+package org.to0mi1.c2pa.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 画像からC2PAマニフェストストアを格納しているセグメントのみを抜き出すユーティリティ。
+ * <p>
+ * JPEGでは{@code APP11}（0xFFEB）マーカーセグメント、PNGでは{@code caBX}チャンクにJUMBFが格納されます。
+ * これらのセグメントだけを最小限の画像コンテナに詰め直すことで、画素データを送らずに
+ * Core API側でマニフェストストアを読み取れるようにします。
+ * <p>
+ * 画素データが含まれないため、ハードバインディング（{@code c2pa.hash.data}等）の検証は必ず失敗します。
+ * 抽出結果はマニフェストの内容確認にのみ使用してください。
+ */
+final class ManifestSegmentExtractor {
+
+    private static final int JPEG_MARKER_PREFIX = 0xFF;
+    private static final int JPEG_SOI = 0xD8;
+    private static final int JPEG_EOI = 0xD9;
+    private static final int JPEG_SOS = 0xDA;
+    private static final int JPEG_APP11 = 0xEB;
+
+    private static final byte[] PNG_SIGNATURE = {
+            (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+    };
+    private static final byte[] PNG_IEND_CHUNK = {
+            0x00, 0x00, 0x00, 0x00, 'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82
+    };
+
+    private ManifestSegmentExtractor() {
+    }
+
+    /**
+     * 画像からマニフェストを格納したセグメントを抽出し、最小限の画像コンテナとして返します。
+     *
+     * @param image 画像データ
+     * @return マニフェストセグメントのみを含む画像データ。未対応の形式、または構造が壊れている場合は{@code null}
+     */
+    static byte[] extract(byte[] image) {
+        if (isJpeg(image)) {
+            return extractJpeg(image);
+        }
+        if (isPng(image)) {
+            return extractPng(image);
+        }
+        return null;
+    }
+
+    private static boolean isJpeg(byte[] image) {
+        return image.length >= 4
+                && (image[0] & 0xFF) == JPEG_MARKER_PREFIX
+                && (image[1] & 0xFF) == JPEG_SOI;
+    }
+
+    private static boolean isPng(byte[] image) {
+        if (image.length < PNG_SIGNATURE.length) {
+            return false;
+        }
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (image[i] != PNG_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * JPEGのマーカーセグメントを走査し、SOSより前にあるAPP11セグメントをすべて抜き出します。
+     * <p>
+     * 長大なJUMBFは複数のAPP11セグメントに分割されるため、出現順を保ったまま連結します。
+     */
+    private static byte[] extractJpeg(byte[] image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(JPEG_MARKER_PREFIX);
+        out.write(JPEG_SOI);
+
+        int pos = 2;
+        while (pos + 1 < image.length) {
+            if ((image[pos] & 0xFF) != JPEG_MARKER_PREFIX) {
+                return null;
+            }
+            // マーカー前のフィルバイト（0xFF）を読み飛ばす
+            while (pos + 1 < image.length && (image[pos + 1] & 0xFF) == JPEG_MARKER_PREFIX) {
+                pos++;
+            }
+            if (pos + 1 >= image.length) {
+                return null;
+            }
+            int marker = image[pos + 1] & 0xFF;
+            if (marker == JPEG_EOI || marker == JPEG_SOS) {
+                break;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                // 長さを持たないスタンドアロンマーカー
+                pos += 2;
+                continue;
+            }
+            if (pos + 3 >= image.length) {
+                return null;
+            }
+            int length = ((image[pos + 2] & 0xFF) << 8) | (image[pos + 3] & 0xFF);
+            int segmentEnd = pos + 2 + length;
+            if (length < 2 || segmentEnd > image.length) {
+                return null;
+            }
+            if (marker == JPEG_APP11) {
+                out.write(image, pos, segmentEnd - pos);
+            }
+            pos = segmentEnd;
+        }
+
+        out.write(JPEG_MARKER_PREFIX);
+        out.write(JPEG_EOI);
+        return out.toByteArray();
+    }
+
+    /**
+     * PNGのチャンクを走査し、IHDRとcaBXチャンクのみを抜き出します。
+     * <p>
+     * IDAT等の画素データチャンクは長さを読んで読み飛ばすだけで、コピーは行いません。
+     */
+    private static byte[] extractPng(byte[] image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(PNG_SIGNATURE, 0, PNG_SIGNATURE.length);
+
+        int pos = PNG_SIGNATURE.length;
+        while (pos + 8 <= image.length) {
+            long length = ((long) (image[pos] & 0xFF) << 24)
+                    | ((image[pos + 1] & 0xFF) << 16)
+                    | ((image[pos + 2] & 0xFF) << 8)
+                    | (image[pos + 3] & 0xFF);
+            long chunkEnd = pos + 12L + length;
+            if (chunkEnd > image.length) {
+                return null;
+            }
+            String type = new String(image, pos + 4, 4, StandardCharsets.US_ASCII);
+            if ("IEND".equals(type)) {
+                break;
+            }
+            if ("IHDR".equals(type) || "caBX".equals(type)) {
+                out.write(image, pos, (int) (chunkEnd - pos));
+            }
+            pos = (int) chunkEnd;
+        }
+
+        out.write(PNG_IEND_CHUNK, 0, PNG_IEND_CHUNK.length);
+        return out.toByteArray();
+    }
+}
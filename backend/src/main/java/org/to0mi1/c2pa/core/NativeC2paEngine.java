@@ -0,0 +1,174 @@
+package org.to0mi1.c2pa.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * c2paライブラリ（{@code libc2pa_c}）をForeign Function &amp; Memory APIでプロセス内から呼び出す{@link C2paEngine}。
+ * <p>
+ * {@code c2pa.native-engine.enabled=true}の場合に{@link HttpC2paEngine}の代わりに使用され、
+ * 画像をCore APIに転送するHTTPの往復とmultipartのエンコードを省きます。
+ * 署名するマニフェストと検証の設定は、Core API（{@code core-api/wrapper.py}）と同じ内容にします。
+ * <p>
+ * c2paライブラリの設定はスレッドごとに保持される場合があるため、各スレッドで最初の呼び出しの前に読み込みます。
+ * ライブラリが返したエラーは、Core APIが500を返した場合と同じく再試行しない{@link CoreApiException}に変換します。
+ * <p>
+ * JVMで実行する場合のみ使用できます（ネイティブイメージはHTTPのエンジンでビルドします）。
+ *
+ * @see NativeC2paLibrary
+ * @see NativeEngineProperties
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "c2pa.native-engine", name = "enabled", havingValue = "true")
+public class NativeC2paEngine implements C2paEngine {
+
+    private static final Set<String> TRAINING_MINING_USES = Set.of("allowed", "notAllowed", "constrained");
+
+    private final NativeC2paLibrary library;
+    private final NativeC2paLibrary.SignerInfo signerInfo;
+    private final String settingsJson;
+    private final JsonMapper jsonMapper;
+    private final ThreadLocal<Boolean> settingsLoaded = ThreadLocal.withInitial(() -> false);
+
+    public NativeC2paEngine(NativeEngineProperties properties, JsonMapper jsonMapper) {
+        if (properties.getLibraryPath() == null || properties.getCertificatePath() == null
+                || properties.getPrivateKeyPath() == null) {
+            throw new IllegalStateException(
+                    "c2pa.native-engine requires library-path, certificate-path and private-key-path");
+        }
+        this.jsonMapper = jsonMapper;
+        this.library = new NativeC2paLibrary(properties.getLibraryPath());
+        this.signerInfo = new NativeC2paLibrary.SignerInfo(
+                properties.getSigningAlgorithm(),
+                readPem(properties.getCertificatePath()),
+                readPem(properties.getPrivateKeyPath()),
+                StringUtils.hasText(properties.getTimestampUrl()) ? properties.getTimestampUrl() : null);
+        this.settingsJson = jsonMapper.writeValueAsString(settings(properties.getTrustAnchorsPath()));
+        log.info("Using in-process c2pa library {} from {}", library.version(), properties.getLibraryPath());
+    }
+
+    @Override
+    public byte[] verify(byte[] image, String fileName) {
+        ensureSettings();
+        try {
+            return library.readJson(mimeType(fileName), image).getBytes(StandardCharsets.UTF_8);
+        } catch (NativeC2paException e) {
+            throw toCoreApiException(e);
+        }
+    }
+
+    @Override
+    public byte[] sign(String title, byte[] image, String fileName,
+                       String aiInference, String aiInferenceConstraintsInfo,
+                       String aiGenerativeTraining, String aiGenerativeTrainingConstraintsInfo) {
+        ensureSettings();
+        String mimeType = mimeType(fileName);
+        String manifestJson = jsonMapper.writeValueAsString(manifest(title, mimeType,
+                aiInference, aiInferenceConstraintsInfo, aiGenerativeTraining, aiGenerativeTrainingConstraintsInfo));
+        // 元の画像を材料として追加し、以前の署名を来歴に残す
+        String ingredientJson = jsonMapper.writeValueAsString(
+                Map.of("title", title != null ? title : "No Title", "relationship", "parentOf"));
+        try {
+            return library.sign(manifestJson, ingredientJson, mimeType, image, signerInfo);
+        } catch (NativeC2paException e) {
+            throw toCoreApiException(e);
+        }
+    }
+
+    /**
+     * Core APIの{@code wrapper.sign}と同じマニフェストの定義を組み立てます。
+     */
+    static Map<String, Object> manifest(String title, String mimeType,
+                                        String aiInference, String aiInferenceConstraintsInfo,
+                                        String aiGenerativeTraining, String aiGenerativeTrainingConstraintsInfo) {
+        Map<String, Object> created = new LinkedHashMap<>();
+        created.put("action", "c2pa.created");
+        created.put("digitalSourceType", "http://cv.iptc.org/newscodes/digitalsourcetype/digitalCreation");
+
+        List<Map<String, Object>> assertions = new ArrayList<>();
+        assertions.add(Map.of("label", "c2pa.actions", "data", Map.of("actions", List.of(created))));
+
+        Map<String, Object> entries = new LinkedHashMap<>();
+        addTrainingMiningEntry(entries, "c2pa.ai_inference", aiInference, aiInferenceConstraintsInfo);
+        addTrainingMiningEntry(entries, "c2pa.ai_generative_training", aiGenerativeTraining,
+                aiGenerativeTrainingConstraintsInfo);
+        if (!entries.isEmpty()) {
+            assertions.add(Map.of("label", "cawg.training-mining", "data", Map.of("entries", entries)));
+        }
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("claim_generator", "C2PA Example");
+        manifest.put("claim_generator_info", List.of(Map.of("name", "C2PA Example", "version", "0.0.1")));
+        manifest.put("format", mimeType);
+        manifest.put("title", title != null ? title : "No Title");
+        manifest.put("ingredients", List.of());
+        manifest.put("assertions", assertions);
+        return manifest;
+    }
+
+    private static void addTrainingMiningEntry(Map<String, Object> entries, String key, String use,
+                                               String constraintsInfo) {
+        if (use == null || !TRAINING_MINING_USES.contains(use)) {
+            return;
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("use", use);
+        if ("constrained".equals(use) && StringUtils.hasText(constraintsInfo)) {
+            entry.put("constraints_info", constraintsInfo);
+        }
+        entries.put(key, entry);
+    }
+
+    /**
+     * Core APIと同じく、トラストアンカーが指定された場合のみ署名証明書のチェーンを検証する設定を返します。
+     */
+    private static Map<String, Object> settings(Path trustAnchorsPath) {
+        if (trustAnchorsPath == null) {
+            return Map.of("verify", Map.of("verify_trust", false));
+        }
+        return Map.of(
+                "verify", Map.of("verify_trust", true),
+                "trust", Map.of("trust_anchors", readPem(trustAnchorsPath)));
+    }
+
+    private void ensureSettings() {
+        if (!settingsLoaded.get()) {
+            library.loadSettings(settingsJson);
+            settingsLoaded.set(true);
+        }
+    }
+
+    private static String mimeType(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    private static CoreApiException toCoreApiException(NativeC2paException e) {
+        return new CoreApiException(HttpStatus.BAD_GATEWAY, e.getMessage(), false, e);
+    }
+
+    private static String readPem(Path path) {
+        try {
+            return Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + path, e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.to0mi1.c2pa.core;
+
+/**
+ * c2paライブラリのC APIがエラーを返したことを示す例外。
+ * <p>
+ * メッセージはC APIが返したエラー（例: {@code "ManifestNotFound: ..."}）です。
+ *
+ * @see NativeC2paLibrary
+ */
+public class NativeC2paException extends RuntimeException {
+
+    public NativeC2paException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,447 @@
+package org.to0mi1.c2pa.core;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * c2paライブラリのC API（{@code libc2pa_c}）をForeign Function &amp; Memory APIで呼び出すバインディング。
+ * <p>
+ * 画像データはJavaのヒープに置いたまま、読み書きとシークのコールバックを持つ{@code C2paStream}として渡します。
+ * コールバックのスタブはライブラリと同じ寿命で1組だけ作成し、ストリームごとの状態は
+ * {@code StreamContext*}として渡す連番から引きます。
+ * <p>
+ * エラーはC APIのスレッドローカルなエラーメッセージを読み取り、{@link NativeC2paException}として送出します。
+ * 返却された文字列・リーダー・ビルダー・署名者・ストリームは、呼び出しごとに必ず解放します。
+ *
+ * @see NativeC2paEngine
+ */
+final class NativeC2paLibrary {
+
+    private static final Linker LINKER = Linker.nativeLinker();
+
+    /**
+     * {@code C2paSignerInfo}（アルゴリズム、証明書チェーン、秘密鍵、TSAのURL）。
+     */
+    private static final StructLayout SIGNER_INFO = MemoryLayout.structLayout(
+            ADDRESS.withName("alg"),
+            ADDRESS.withName("sign_cert"),
+            ADDRESS.withName("private_key"),
+            ADDRESS.withName("ta_url"));
+
+    private static final int SEEK_START = 0;
+    private static final int SEEK_CURRENT = 1;
+    private static final int SEEK_END = 2;
+
+    private final MethodHandle error;
+    private final MethodHandle stringFree;
+    private final MethodHandle version;
+    private final MethodHandle loadSettings;
+    private final MethodHandle createStream;
+    private final MethodHandle releaseStream;
+    private final MethodHandle readerFromStream;
+    private final MethodHandle readerJson;
+    private final MethodHandle readerFree;
+    private final MethodHandle builderFromJson;
+    private final MethodHandle builderAddIngredientFromStream;
+    private final MethodHandle builderSign;
+    private final MethodHandle builderFree;
+    private final MethodHandle manifestBytesFree;
+    private final MethodHandle signerFromInfo;
+    private final MethodHandle signerFree;
+
+    private final MemorySegment readCallback;
+    private final MemorySegment seekCallback;
+    private final MemorySegment writeCallback;
+    private final MemorySegment flushCallback;
+
+    private final ConcurrentMap<Long, BufferStream> streams = new ConcurrentHashMap<>();
+    private final AtomicLong nextStreamId = new AtomicLong(1);
+
+    /**
+     * ライブラリを読み込み、関数とコールバックのスタブを用意します。
+     *
+     * @param libraryPath {@code libc2pa_c}のパス
+     * @throws IllegalArgumentException ライブラリを読み込めない場合
+     * @throws IllegalStateException    64ビット以外の環境の場合
+     */
+    NativeC2paLibrary(Path libraryPath) {
+        if (ADDRESS.byteSize() != Long.BYTES) {
+            throw new IllegalStateException("The native c2pa engine requires a 64-bit runtime");
+        }
+        SymbolLookup library = SymbolLookup.libraryLookup(libraryPath, Arena.global());
+
+        this.error = downcall(library, "c2pa_error", FunctionDescriptor.of(ADDRESS));
+        this.stringFree = downcall(library, "c2pa_string_free", FunctionDescriptor.ofVoid(ADDRESS));
+        this.version = downcall(library, "c2pa_version", FunctionDescriptor.of(ADDRESS));
+        this.loadSettings = downcall(library, "c2pa_load_settings",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+        this.createStream = downcall(library, "c2pa_create_stream",
+                FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        this.releaseStream = downcall(library, "c2pa_release_stream", FunctionDescriptor.ofVoid(ADDRESS));
+        this.readerFromStream = downcall(library, "c2pa_reader_from_stream",
+                FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
+        this.readerJson = downcall(library, "c2pa_reader_json", FunctionDescriptor.of(ADDRESS, ADDRESS));
+        this.readerFree = downcall(library, "c2pa_reader_free", FunctionDescriptor.ofVoid(ADDRESS));
+        this.builderFromJson = downcall(library, "c2pa_builder_from_json", FunctionDescriptor.of(ADDRESS, ADDRESS));
+        this.builderAddIngredientFromStream = downcall(library, "c2pa_builder_add_ingredient_from_stream",
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        this.builderSign = downcall(library, "c2pa_builder_sign",
+                FunctionDescriptor.of(JAVA_LONG, ADDRESS, ADDRESS, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        this.builderFree = downcall(library, "c2pa_builder_free", FunctionDescriptor.ofVoid(ADDRESS));
+        this.manifestBytesFree = downcall(library, "c2pa_manifest_bytes_free", FunctionDescriptor.ofVoid(ADDRESS));
+        this.signerFromInfo = downcall(library, "c2pa_signer_from_info", FunctionDescriptor.of(ADDRESS, ADDRESS));
+        this.signerFree = downcall(library, "c2pa_signer_free", FunctionDescriptor.ofVoid(ADDRESS));
+
+        this.readCallback = upcall("read", FunctionDescriptor.of(JAVA_LONG, ADDRESS, ADDRESS, JAVA_LONG));
+        this.seekCallback = upcall("seek", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_LONG, JAVA_INT));
+        this.writeCallback = upcall("write", FunctionDescriptor.of(JAVA_LONG, ADDRESS, ADDRESS, JAVA_LONG));
+        this.flushCallback = upcall("flush", FunctionDescriptor.of(JAVA_LONG, ADDRESS));
+    }
+
+    /**
+     * ライブラリのバージョンを返します。
+     */
+    String version() {
+        try {
+            return takeString((MemorySegment) version.invokeExact());
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * 呼び出したスレッドにc2paライブラリの設定を読み込みます。
+     *
+     * @param settingsJson 設定のJSON
+     * @throws NativeC2paException 設定を読み込めない場合
+     */
+    void loadSettings(String settingsJson) {
+        try (Arena arena = Arena.ofConfined()) {
+            int result = (int) loadSettings.invokeExact(arena.allocateFrom(settingsJson), arena.allocateFrom("json"));
+            if (result != 0) {
+                throw lastError("c2pa_load_settings");
+            }
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * 画像のマニフェストストアを読み取り、検証結果を含むJSONを返します。
+     *
+     * @param format 画像のMIMEタイプ
+     * @param image  画像データ
+     * @return マニフェストストアのJSON
+     * @throws NativeC2paException 読み取りに失敗した場合
+     */
+    String readJson(String format, byte[] image) {
+        try (Arena arena = Arena.ofConfined(); OpenStream source = openStream(new BufferStream(image))) {
+            MemorySegment reader = (MemorySegment) readerFromStream.invokeExact(arena.allocateFrom(format),
+                    source.handle());
+            if (reader.address() == 0) {
+                throw lastError("c2pa_reader_from_stream");
+            }
+            try {
+                MemorySegment json = (MemorySegment) readerJson.invokeExact(reader);
+                if (json.address() == 0) {
+                    throw lastError("c2pa_reader_json");
+                }
+                return takeString(json);
+            } finally {
+                readerFree.invokeExact(reader);
+            }
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * 画像にマニフェストを埋め込んで署名します。
+     *
+     * @param manifestJson   マニフェストの定義（JSON）
+     * @param ingredientJson 元の画像を材料として追加する場合の定義（JSON）。追加できない場合は材料なしで署名します
+     * @param format         画像のMIMEタイプ
+     * @param image          署名対象の画像データ
+     * @param signer         署名者の設定
+     * @return 署名済み画像のバイト配列
+     * @throws NativeC2paException 署名に失敗した場合
+     */
+    byte[] sign(String manifestJson, String ingredientJson, String format, byte[] image, SignerInfo signer) {
+        BufferStream output = new BufferStream(new byte[Math.max(1024, image.length + (image.length >> 3))], 0);
+        try (Arena arena = Arena.ofConfined();
+             OpenStream source = openStream(new BufferStream(image));
+             OpenStream dest = openStream(output)) {
+            MemorySegment formatString = arena.allocateFrom(format);
+            MemorySegment builder = (MemorySegment) builderFromJson.invokeExact(arena.allocateFrom(manifestJson));
+            if (builder.address() == 0) {
+                throw lastError("c2pa_builder_from_json");
+            }
+            try {
+                if (ingredientJson != null) {
+                    int added = (int) builderAddIngredientFromStream.invokeExact(builder,
+                            arena.allocateFrom(ingredientJson), formatString, source.handle());
+                    if (added != 0) {
+                        // 既存の署名がない画像などは材料を追加できないため、エラーを読み捨てて材料なしで署名する
+                        takeError();
+                    }
+                    source.stream().position = 0;
+                }
+                MemorySegment signerHandle = createSigner(arena, signer);
+                try {
+                    MemorySegment manifestBytes = arena.allocate(ADDRESS);
+                    long size = (long) builderSign.invokeExact(builder, formatString, source.handle(), dest.handle(),
+                            signerHandle, manifestBytes);
+                    if (size < 0) {
+                        throw lastError("c2pa_builder_sign");
+                    }
+                    manifestBytesFree.invokeExact(manifestBytes.get(ADDRESS, 0));
+                } finally {
+                    signerFree.invokeExact(signerHandle);
+                }
+            } finally {
+                builderFree.invokeExact(builder);
+            }
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+        return output.toByteArray();
+    }
+
+    private MemorySegment createSigner(Arena arena, SignerInfo signer) throws Throwable {
+        MemorySegment info = arena.allocate(SIGNER_INFO);
+        info.set(ADDRESS, SIGNER_INFO.byteOffset(MemoryLayout.PathElement.groupElement("alg")),
+                arena.allocateFrom(signer.algorithm()));
+        info.set(ADDRESS, SIGNER_INFO.byteOffset(MemoryLayout.PathElement.groupElement("sign_cert")),
+                arena.allocateFrom(signer.certificateChain()));
+        info.set(ADDRESS, SIGNER_INFO.byteOffset(MemoryLayout.PathElement.groupElement("private_key")),
+                arena.allocateFrom(signer.privateKey()));
+        info.set(ADDRESS, SIGNER_INFO.byteOffset(MemoryLayout.PathElement.groupElement("ta_url")),
+                signer.timestampUrl() != null ? arena.allocateFrom(signer.timestampUrl()) : MemorySegment.NULL);
+        MemorySegment handle = (MemorySegment) signerFromInfo.invokeExact(info);
+        if (handle.address() == 0) {
+            throw lastError("c2pa_signer_from_info");
+        }
+        return handle;
+    }
+
+    private OpenStream openStream(BufferStream stream) throws Throwable {
+        long id = nextStreamId.getAndIncrement();
+        streams.put(id, stream);
+        MemorySegment handle = (MemorySegment) createStream.invokeExact(MemorySegment.ofAddress(id),
+                readCallback, seekCallback, writeCallback, flushCallback);
+        if (handle.address() == 0) {
+            streams.remove(id);
+            throw lastError("c2pa_create_stream");
+        }
+        return new OpenStream(id, handle, stream);
+    }
+
+    /**
+     * C APIから返された文字列を読み取り、解放します。
+     */
+    private String takeString(MemorySegment string) throws Throwable {
+        try {
+            return string.reinterpret(Long.MAX_VALUE).getString(0);
+        } finally {
+            stringFree.invokeExact(string);
+        }
+    }
+
+    /**
+     * 直前の呼び出しのエラーメッセージを読み取ります。
+     */
+    private String takeError() throws Throwable {
+        MemorySegment message = (MemorySegment) error.invokeExact();
+        return message.address() != 0 ? takeString(message) : null;
+    }
+
+    private NativeC2paException lastError(String function) throws Throwable {
+        String message = takeError();
+        return new NativeC2paException(message != null ? message : function + " failed");
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException e) {
+            return e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException(t);
+    }
+
+    private static MethodHandle downcall(SymbolLookup library, String name, FunctionDescriptor descriptor) {
+        MemorySegment symbol = library.find(name)
+                .orElseThrow(() -> new IllegalArgumentException("Symbol " + name + " not found in c2pa library"));
+        return LINKER.downcallHandle(symbol, descriptor);
+    }
+
+    private MemorySegment upcall(String name, FunctionDescriptor descriptor) {
+        try {
+            MethodHandle target = MethodHandles.lookup()
+                    .findVirtual(NativeC2paLibrary.class, name, descriptor.toMethodType())
+                    .bindTo(this);
+            return LINKER.upcallStub(target, descriptor, Arena.global());
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 以下はc2paライブラリから呼び出されるコールバック。例外を送出するとJVMが停止するため、失敗は-1で返す
+
+    private long read(MemorySegment context, MemorySegment data, long length) {
+        try {
+            BufferStream stream = streams.get(context.address());
+            if (stream == null || length < 0) {
+                return -1;
+            }
+            int count = (int) Math.min(length, stream.size - stream.position);
+            if (count <= 0) {
+                return 0;
+            }
+            MemorySegment.copy(stream.buffer, (int) stream.position, data.reinterpret(count), ValueLayout.JAVA_BYTE, 0,
+                    count);
+            stream.position += count;
+            return count;
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    private long seek(MemorySegment context, long offset, int mode) {
+        try {
+            BufferStream stream = streams.get(context.address());
+            if (stream == null) {
+                return -1;
+            }
+            long base = switch (mode) {
+                case SEEK_START -> 0;
+                case SEEK_CURRENT -> stream.position;
+                case SEEK_END -> stream.size;
+                default -> -1;
+            };
+            long position = base + offset;
+            if (base < 0 || position < 0 || position > Integer.MAX_VALUE - 8) {
+                return -1;
+            }
+            stream.position = position;
+            return position;
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    private long write(MemorySegment context, MemorySegment data, long length) {
+        try {
+            BufferStream stream = streams.get(context.address());
+            if (stream == null || length < 0 || stream.position + length > Integer.MAX_VALUE - 8) {
+                return -1;
+            }
+            int count = (int) length;
+            stream.ensureCapacity((int) stream.position + count);
+            MemorySegment.copy(data.reinterpret(count), ValueLayout.JAVA_BYTE, 0, stream.buffer, (int) stream.position,
+                    count);
+            stream.position += count;
+            stream.size = Math.max(stream.size, (int) stream.position);
+            return count;
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    private long flush(MemorySegment context) {
+        return streams.containsKey(context.address()) ? 0 : -1;
+    }
+
+    /**
+     * 署名者の設定。証明書チェーンと秘密鍵はPEM形式の文字列です。
+     *
+     * @param algorithm        署名アルゴリズム（例: {@code es256}）
+     * @param certificateChain 署名証明書のチェーン
+     * @param privateKey       秘密鍵
+     * @param timestampUrl     TSAのURL。タイムスタンプを付与しない場合は{@code null}
+     */
+    record SignerInfo(String algorithm, String certificateChain, String privateKey, String timestampUrl) {
+    }
+
+    /**
+     * ヒープ上のバイト配列を読み書きするストリーム。
+     */
+    private static final class BufferStream {
+
+        private byte[] buffer;
+        private int size;
+        private long position;
+
+        private BufferStream(byte[] data) {
+            this(data, data.length);
+        }
+
+        private BufferStream(byte[] buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length + (buffer.length >> 1)));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * C APIに作成したストリーム。閉じるとストリームを解放し、コールバックから参照できなくします。
+     */
+    private final class OpenStream implements AutoCloseable {
+
+        private final long id;
+        private final MemorySegment handle;
+        private final BufferStream stream;
+
+        private OpenStream(long id, MemorySegment handle, BufferStream stream) {
+            this.id = id;
+            this.handle = handle;
+            this.stream = stream;
+        }
+
+        MemorySegment handle() {
+            return handle;
+        }
+
+        BufferStream stream() {
+            return stream;
+        }
+
+        @Override
+        public void close() {
+            try {
+                releaseStream.invokeExact(handle);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            } finally {
+                streams.remove(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.to0mi1.c2pa.core;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * c2paライブラリをプロセス内で呼び出す{@link NativeC2paEngine}の設定。
+ * <p>
+ * {@code c2pa.native-engine}プレフィックスで設定します。
+ * 有効にすると、Core APIを経由せずに{@code libc2pa_c}で署名と検証を行います。
+ */
+@Data
+@ConfigurationProperties(prefix = "c2pa.native-engine")
+public class NativeEngineProperties {
+
+    /**
+     * プロセス内のエンジンを使用するかどうか。無効の場合はCore APIをHTTPで呼び出します。
+     */
+    private boolean enabled = false;
+
+    /**
+     * c2paライブラリのC API（{@code libc2pa_c.so}など）のパス。
+     */
+    private Path libraryPath;
+
+    /**
+     * 署名証明書のチェーン（PEM形式）のパス。
+     */
+    private Path certificatePath;
+
+    /**
+     * 署名に使用する秘密鍵（PEM形式）のパス。
+     */
+    private Path privateKeyPath;
+
+    /**
+     * 署名アルゴリズム。
+     */
+    private String signingAlgorithm = "es256";
+
+    /**
+     * タイムスタンプを取得するTSAのURL。空の場合はタイムスタンプを付与しません。
+     */
+    private String timestampUrl = "http://timestamp.digicert.com";
+
+    /**
+     * 信頼する証明書（トラストアンカー）のPEMファイルのパス。
+     * <p>
+     * 指定した場合は署名証明書のチェーンをアンカーまで検証し、信頼できれば検証状態が{@code "Trusted"}になります。
+     * Core APIの{@code C2PA_TRUST_ANCHORS}に相当します。
+     */
+    private Path trustAnchorsPath;
+}
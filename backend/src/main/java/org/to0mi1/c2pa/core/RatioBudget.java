@@ -0,0 +1,52 @@
+package org.to0mi1.c2pa.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通常の呼び出しに対する追加の呼び出し（ヘッジや再試行）の割合を制限する予算。
+ * <p>
+ * 通常の呼び出しごとに{@code ratio}分の予算を積み立て、追加の呼び出し1回につき1消費します。
+ * これにより、障害時に追加の呼び出しが連鎖的に増えて負荷を増幅させることを防ぎます。
+ * 積み立て額は{@code maxBurst}回分で頭打ちになります。
+ */
+final class RatioBudget {
+
+    private static final long UNIT = 1_000;
+
+    private final long depositPerCall;
+    private final long maxBalance;
+    private final AtomicLong balance = new AtomicLong();
+
+    /**
+     * @param ratio    通常の呼び出しに対する追加の呼び出しの割合
+     * @param maxBurst 連続して行える追加の呼び出しの上限
+     */
+    RatioBudget(double ratio, int maxBurst) {
+        this.depositPerCall = (long) (ratio * UNIT);
+        this.maxBalance = maxBurst * UNIT;
+    }
+
+    /**
+     * 通常の呼び出し1回分の予算を積み立てます。
+     */
+    void deposit() {
+        balance.getAndUpdate(current -> Math.min(maxBalance, current + depositPerCall));
+    }
+
+    /**
+     * 追加の呼び出し1回分の予算を消費します。
+     *
+     * @return 予算が残っていた場合は{@code true}
+     */
+    boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+}
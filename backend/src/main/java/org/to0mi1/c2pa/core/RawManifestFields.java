@@ -0,0 +1,81 @@
+package org.to0mi1.c2pa.core;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Core APIの応答JSONを解析せずに、一部の値だけを読み取るユーティリティ。
+ * <p>
+ * 応答全体を{@link org.to0mi1.c2pa.core.model.C2paManifest}に変換せずにそのまま返す場合に、
+ * メトリクス用の値を取り出すために使用します。走査は先頭と末尾の一定範囲に限定するため、
+ * マニフェストストアが大きくても処理量は変わりません。
+ * Core API（Flaskの{@code jsonify}）はキーを整列して出力するため、{@code validation_state}は通常末尾に現れます。
+ */
+final class RawManifestFields {
+
+    private static final byte[] VALIDATION_STATE_KEY = "\"validation_state\"".getBytes(StandardCharsets.US_ASCII);
+    private static final int WINDOW = 4096;
+
+    private RawManifestFields() {
+    }
+
+    /**
+     * 応答JSONから{@code validation_state}の値を読み取ります。
+     *
+     * @param json Core APIの応答JSON
+     * @return 検証状態。走査範囲に見つからない場合は{@code null}
+     */
+    static String validationState(byte[] json) {
+        int tailStart = Math.max(0, json.length - WINDOW);
+        String value = stringValue(json, tailStart, json.length);
+        if (value == null && tailStart > 0) {
+            value = stringValue(json, 0, Math.min(WINDOW, tailStart));
+        }
+        return value;
+    }
+
+    private static String stringValue(byte[] json, int from, int to) {
+        int key = indexOf(json, VALIDATION_STATE_KEY, from, to);
+        if (key < 0) {
+            return null;
+        }
+        int i = skipWhitespace(json, key + VALIDATION_STATE_KEY.length, to);
+        if (i >= to || json[i] != ':') {
+            return null;
+        }
+        i = skipWhitespace(json, i + 1, to);
+        if (i >= to || json[i] != '"') {
+            return null;
+        }
+        int start = i + 1;
+        for (int end = start; end < to; end++) {
+            if (json[end] == '\\') {
+                return null;
+            }
+            if (json[end] == '"') {
+                return new String(json, start, end - start, StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from, int to) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] data, int from, int to) {
+        int i = from;
+        while (i < to && (data[i] == ' ' || data[i] == '\n' || data[i] == '\r' || data[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,91 @@
+package org.to0mi1.c2pa.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 再試行可能なエラーに対して、ジッター付きの指数バックオフで呼び出しを再試行するクラス。
+ * <p>
+ * 再試行はプロセス全体で共有する{@link RatioBudget}の範囲内でのみ行います。
+ * Core APIの障害時に全リクエストが再試行して負荷を増幅させる、いわゆる再試行の嵐を防ぐためです。
+ * <p>
+ * 例外は{@link CoreErrorClassifier}で分類され、最終的に{@link CoreApiException}として送出されます。
+ */
+final class RetryingCall {
+
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final RatioBudget budget;
+    private final Counter retries;
+    private final Counter budgetExhausted;
+
+    RetryingCall(String name, CoreServerProperties.Retry retry, MeterRegistry meterRegistry) {
+        this.enabled = retry.isEnabled();
+        this.maxAttempts = Math.max(1, retry.getMaxAttempts());
+        this.initialBackoffNanos = retry.getInitialBackoff().toNanos();
+        this.maxBackoffNanos = retry.getMaxBackoff().toNanos();
+        this.budget = new RatioBudget(retry.getBudgetRatio(), retry.getMaxBurst());
+        this.retries = Counter.builder("c2pa.retry.attempts").tag("name", name).register(meterRegistry);
+        this.budgetExhausted = Counter.builder("c2pa.retry.budget-exhausted").tag("name", name).register(meterRegistry);
+    }
+
+    /**
+     * 呼び出しを実行し、再試行可能なエラーであれば再試行します。
+     *
+     * @param call 冪等な呼び出し
+     * @param <T>  呼び出し結果の型
+     * @return 呼び出し結果
+     * @throws CoreApiException 再試行不可能なエラー、または再試行の上限・予算を超えた場合
+     */
+    <T> T execute(Supplier<T> call) {
+        if (enabled) {
+            budget.deposit();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                RuntimeException classified = CoreErrorClassifier.classify(e);
+                if (!enabled || attempt >= maxAttempts || !isRetryable(classified)) {
+                    throw classified;
+                }
+                if (!budget.tryWithdraw()) {
+                    budgetExhausted.increment();
+                    throw classified;
+                }
+                retries.increment();
+                sleep(backoffNanos(attempt), classified);
+            }
+        }
+    }
+
+    private static boolean isRetryable(RuntimeException e) {
+        return e instanceof CoreApiException coreApiException && coreApiException.isRetryable();
+    }
+
+    /**
+     * Full Jitter方式で待ち時間を算出します。
+     * <p>
+     * 上限値を指数的に増やしつつ、実際の待ち時間は0から上限値までの一様乱数とし、再試行のタイミングを分散させます。
+     */
+    private long backoffNanos(int attempt) {
+        long ceiling = initialBackoffNanos << Math.min(attempt - 1, 20);
+        ceiling = Math.min(maxBackoffNanos, Math.max(ceiling, 1));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long nanos, RuntimeException cause) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
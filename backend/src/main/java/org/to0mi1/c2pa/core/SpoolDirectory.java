@@ -0,0 +1,114 @@
+package org.to0mi1.c2pa.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Core APIと共有するスプールディレクトリに、画像を書き出し・読み取るクラス。
+ * <p>
+ * 書き出したファイルはCore APIの呼び出しが終わった時点で削除します。
+ * 読み取り時はパスがスプールディレクトリ内にあることと、内容のSHA-256が一致することを確認します。
+ *
+ * @see CoreServerProperties.Spool
+ */
+final class SpoolDirectory {
+
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,8}");
+
+    private final Path directory;
+
+    SpoolDirectory(Path directory) {
+        try {
+            this.directory = Files.createDirectories(directory).toRealPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create spool directory " + directory, e);
+        }
+    }
+
+    /**
+     * 画像をスプールに書き出します。
+     *
+     * @param data     画像データ
+     * @param fileName ファイル名（拡張子のみ使用）
+     * @return 書き出したファイル
+     */
+    Entry write(byte[] data, String fileName) {
+        try {
+            Path path = Files.createTempFile(directory, "in-", extension(fileName));
+            Files.write(path, data);
+            return new Entry(path, sha256(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to spool directory " + directory, e);
+        }
+    }
+
+    /**
+     * Core APIが書き出したファイルを読み取り、削除します。
+     *
+     * @param path   ファイルのパス
+     * @param sha256 内容のSHA-256（16進数表記）
+     * @return ファイルの内容
+     */
+    byte[] readAndDelete(String path, String sha256) {
+        Path file;
+        try {
+            file = Path.of(path).toRealPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spooled output " + path, e);
+        }
+        if (!directory.equals(file.getParent())) {
+            throw new IllegalStateException("Core API returned a path outside the spool directory: " + path);
+        }
+        try {
+            byte[] data = Files.readAllBytes(file);
+            if (!sha256(data).equalsIgnoreCase(sha256)) {
+                throw new IllegalStateException("Spooled output hash mismatch: " + path);
+            }
+            return data;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spooled output " + path, e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // 削除できなかったファイルはスプールのボリュームとともに破棄される
+        }
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+        if (dot < 0) {
+            return null;
+        }
+        String extension = fileName.substring(dot);
+        return EXTENSION.matcher(extension).matches() ? extension : null;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * スプールに書き出したファイル。
+     *
+     * @param path   ファイルのパス
+     * @param sha256 内容のSHA-256（16進数表記）
+     */
+    record Entry(Path path, String sha256) {
+    }
+}
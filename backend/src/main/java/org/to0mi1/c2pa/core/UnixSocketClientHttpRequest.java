@@ -0,0 +1,272 @@
+package org.to0mi1.c2pa.core;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unixドメインソケット上でHTTP/1.1のリクエストを1件送信するクラス。
+ * <p>
+ * 本文はメモリに蓄積してから{@code Content-Length}付きで送信し、応答の本文もすべて読み取ってから返します。
+ * Core APIへのリクエストと応答は、いずれも呼び出し元でバイト配列として扱われるためです。
+ * <p>
+ * 再利用した接続が応答を1バイトも返さずに閉じられた場合、リクエストはCore APIで処理されていません。
+ * ファクトリーで再送が有効であれば、このリクエストを新しい接続で1回だけ送り直します。
+ *
+ * @see UnixSocketClientHttpRequestFactory
+ */
+final class UnixSocketClientHttpRequest extends AbstractClientHttpRequest {
+
+    private static final int MAX_HEADER_LINE = 8192;
+
+    private final UnixSocketClientHttpRequestFactory factory;
+    private final URI uri;
+    private final HttpMethod method;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+    UnixSocketClientHttpRequest(UnixSocketClientHttpRequestFactory factory, URI uri, HttpMethod method) {
+        this.factory = factory;
+        this.uri = uri;
+        this.method = method;
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    @Override
+    public URI getURI() {
+        return uri;
+    }
+
+    @Override
+    protected OutputStream getBodyInternal(HttpHeaders headers) {
+        return body;
+    }
+
+    @Override
+    protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+        UnixSocketClientHttpRequestFactory.Lease lease = factory.lease();
+        try {
+            return exchange(lease.channel(), headers);
+        } catch (StaleConnectionException e) {
+            if (!lease.reused() || !factory.retryStaleConnection()) {
+                throw e;
+            }
+            // アイドル中に閉じられた接続を再利用していたため、新しい接続で送り直す
+            return exchange(factory.connect(), headers);
+        }
+    }
+
+    private ClientHttpResponse exchange(SocketChannel channel, HttpHeaders headers) throws IOException {
+        AbortScope.register(() -> UnixSocketClientHttpRequestFactory.closeQuietly(channel));
+        boolean reusable = false;
+        ScheduledFuture<?> timeout = factory.watchdog().schedule(() -> UnixSocketClientHttpRequestFactory.closeQuietly(channel),
+                factory.readTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            try {
+                writeRequest(channel, headers);
+            } catch (ClosedChannelException e) {
+                // 中断やタイムアウトで閉じた接続は送り直さない
+                throw e;
+            } catch (IOException e) {
+                throw new StaleConnectionException("Core API closed the connection before the request was sent", e);
+            }
+            Response response = readResponse(Channels.newInputStream(channel));
+            reusable = response.keepAlive;
+            return response;
+        } finally {
+            timeout.cancel(false);
+            factory.release(channel, reusable && channel.isOpen());
+        }
+    }
+
+    private void writeRequest(SocketChannel channel, HttpHeaders headers) throws IOException {
+        String target = uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        StringBuilder head = new StringBuilder(256)
+                .append(method.name()).append(' ').append(target.isEmpty() ? "/" : target).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(uri.getHost() != null ? uri.getHost() : "localhost").append("\r\n");
+        headers.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !HttpHeaders.HOST.equalsIgnoreCase(name)
+                    && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                for (String value : values) {
+                    head.append(name).append(": ").append(value).append("\r\n");
+                }
+            }
+        });
+        head.append("Content-Length: ").append(body.size()).append("\r\n\r\n");
+
+        writeFully(channel, ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)));
+        writeFully(channel, ByteBuffer.wrap(body.toByteArray()));
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Response readResponse(InputStream raw) throws IOException {
+        InputStream in = new BufferedInputStream(raw, 64 * 1024);
+        in.mark(1);
+        if (in.read() < 0) {
+            throw new StaleConnectionException("Core API closed the connection before responding", null);
+        }
+        in.reset();
+        String statusLine = readLine(in);
+        String[] status = statusLine.split(" ", 3);
+        if (status.length < 2 || !status[0].startsWith("HTTP/1.")) {
+            throw new IOException("Malformed status line from core API: " + statusLine);
+        }
+        HttpHeaders responseHeaders = new HttpHeaders();
+        for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                responseHeaders.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+
+        String connection = responseHeaders.getFirst(HttpHeaders.CONNECTION);
+        boolean keepAlive = status[0].equals("HTTP/1.1")
+                ? connection == null || !connection.equalsIgnoreCase("close")
+                : connection != null && connection.equalsIgnoreCase("keep-alive");
+        String transferEncoding = responseHeaders.getFirst(HttpHeaders.TRANSFER_ENCODING);
+        byte[] content;
+        if (method == HttpMethod.HEAD) {
+            content = new byte[0];
+        } else if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            content = readChunked(in);
+        } else if (responseHeaders.getContentLength() >= 0) {
+            content = readExactly(in, responseHeaders.getContentLength());
+        } else {
+            // 長さが示されない応答は接続の切断で終わるため、接続を再利用しない
+            content = in.readAllBytes();
+            keepAlive = false;
+        }
+        String reason = status.length > 2 ? status[2] : "";
+        return new Response(HttpStatusCode.valueOf(Integer.parseInt(status[1])), reason, responseHeaders, content, keepAlive);
+    }
+
+    private static byte[] readChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            int extension = sizeLine.indexOf(';');
+            long size = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+            if (size == 0) {
+                while (!readLine(in).isEmpty()) {
+                    // トレーラーは使用しない
+                }
+                return out.toByteArray();
+            }
+            out.write(readExactly(in, size));
+            readLine(in);
+        }
+    }
+
+    private static byte[] readExactly(InputStream in, long length) throws IOException {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Core API response too large: " + length);
+        }
+        byte[] content = in.readNBytes((int) length);
+        if (content.length != length) {
+            throw new EOFException("Core API closed the connection after " + content.length + " of " + length + " bytes");
+        }
+        return content;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Core API closed the connection");
+            }
+            if (b != '\r') {
+                if (line.length() >= MAX_HEADER_LINE) {
+                    throw new IOException("Header line from core API too long");
+                }
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Core APIが応答を返す前に接続を閉じたことを示す例外。リクエストは処理されていないため、送り直すことができます。
+     */
+    private static final class StaleConnectionException extends EOFException {
+
+        StaleConnectionException(String message, IOException cause) {
+            super(message);
+            if (cause != null) {
+                initCause(cause);
+            }
+        }
+    }
+
+    /**
+     * 本文をすべて読み取り済みの応答。
+     */
+    private static final class Response implements ClientHttpResponse {
+
+        private final HttpStatusCode statusCode;
+        private final String statusText;
+        private final HttpHeaders headers;
+        private final byte[] content;
+        private final boolean keepAlive;
+
+        Response(HttpStatusCode statusCode, String statusText, HttpHeaders headers, byte[] content, boolean keepAlive) {
+            this.statusCode = statusCode;
+            this.statusText = statusText;
+            this.headers = headers;
+            this.content = content;
+            this.keepAlive = keepAlive;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getStatusText() {
+            return statusText;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void close() {
+            // 接続は本文の読み取り完了時に返却済み
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.to0mi1.c2pa.core;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 同じホスト上のCore APIと、TCPではなくUnixドメインソケットで通信する{@link ClientHttpRequestFactory}。
+ * <p>
+ * 同じPodで動作するCore APIに対して、ループバックのTCPスタックを経由せずにHTTP/1.1で接続します。
+ * 接続はキープアライブで再利用し、アイドル状態の接続を最大で{@code maxIdle}本保持します。
+ * 同時接続数は呼び出し元の{@link Bulkhead}で制限されるため、ここでは上限を設けません。
+ * <p>
+ * アイドル中にCore APIが閉じた接続は、再利用する前に確認して破棄します。確認の直後に閉じられた場合に備え、
+ * {@code retryStaleConnection}が有効であれば、再利用した接続が応答の前に閉じられたリクエストを新しい接続で1回だけ送り直します。
+ * 署名のように送り直してはならないリクエストでは無効にします。
+ * <p>
+ * Unixドメインソケットは読み取りのタイムアウトを持たないため、応答の待ち時間が{@code readTimeout}を超えた場合は
+ * 監視スレッドが接続を閉じて読み取りを中断します。
+ */
+final class UnixSocketClientHttpRequestFactory implements ClientHttpRequestFactory, AutoCloseable {
+
+    private final UnixDomainSocketAddress address;
+    private final Duration readTimeout;
+    private final boolean retryStaleConnection;
+    private final BlockingDeque<SocketChannel> idle;
+    private final AtomicInteger leased = new AtomicInteger();
+    private final ScheduledExecutorService watchdog;
+
+    UnixSocketClientHttpRequestFactory(Path socketPath, int maxIdle, Duration readTimeout,
+                                       boolean retryStaleConnection) {
+        this.address = UnixDomainSocketAddress.of(socketPath);
+        this.readTimeout = readTimeout;
+        this.retryStaleConnection = retryStaleConnection;
+        this.idle = new LinkedBlockingDeque<>(maxIdle);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "c2pa-uds-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new UnixSocketClientHttpRequest(this, uri, httpMethod);
+    }
+
+    /**
+     * 使用中の接続数を返します。
+     */
+    int leased() {
+        return leased.get();
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+        SocketChannel channel;
+        while ((channel = idle.pollFirst()) != null) {
+            closeQuietly(channel);
+        }
+    }
+
+    Duration readTimeout() {
+        return readTimeout;
+    }
+
+    boolean retryStaleConnection() {
+        return retryStaleConnection;
+    }
+
+    ScheduledExecutorService watchdog() {
+        return watchdog;
+    }
+
+    /**
+     * アイドル状態の接続を取り出します。Core APIに閉じられた接続は破棄し、使用できる接続がなければ新しく接続します。
+     */
+    Lease lease() throws IOException {
+        SocketChannel channel;
+        while ((channel = idle.pollFirst()) != null) {
+            if (isUsable(channel)) {
+                leased.incrementAndGet();
+                return new Lease(channel, true);
+            }
+            closeQuietly(channel);
+        }
+        return new Lease(connect(), false);
+    }
+
+    /**
+     * アイドル状態の接続を使わずに、新しく接続します。
+     */
+    SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        leased.incrementAndGet();
+        return channel;
+    }
+
+    /**
+     * 応答を最後まで読み取った接続を返却します。再利用できない接続は閉じます。
+     */
+    void release(SocketChannel channel, boolean reusable) {
+        leased.decrementAndGet();
+        if (!reusable || !channel.isOpen() || !idle.offerFirst(channel)) {
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * アイドル状態の接続が使用できるかどうかを、ブロックせずに読み取って確認します。
+     * <p>
+     * 要求していない応答は届かないため、切断（-1）やデータの到着はいずれも再利用できない状態です。
+     */
+    private static boolean isUsable(SocketChannel channel) {
+        if (!channel.isOpen()) {
+            return false;
+        }
+        try {
+            channel.configureBlocking(false);
+            try {
+                return channel.read(ByteBuffer.allocate(1)) == 0;
+            } finally {
+                channel.configureBlocking(true);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 既に切断されている
+        }
+    }
+
+    /**
+     * 取り出した接続。
+     *
+     * @param channel 接続
+     * @param reused  アイドル状態の接続を再利用したかどうか
+     */
+    record Lease(SocketChannel channel, boolean reused) {
+    }
+}
@@ -0,0 +1,171 @@
+package org.to0mi1.c2pa.core;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同時に届いた検証リクエストを、1回の{@link C2paEngine#verifyBatch(List)}にまとめるクラス。
+ * <p>
+ * 収集スレッドは最初のリクエストを受け取ってから最大{@code maxWait}の間、後続のリクエストを待ち合わせ、
+ * 件数か合計サイズが上限に達した時点で送信します。送信は別のスレッドで行うため、
+ * 送信中も次のバッチの収集を続けます。送信スレッドがすべて使用中の場合は収集スレッドが自ら送信し、
+ * その間は収集が止まることで負荷が調整されます。
+ * <p>
+ * 同時に待機できる呼び出し元の数は、呼び出し元の{@link Bulkhead}で制限されます。
+ *
+ * @see CoreServerProperties.Batch
+ */
+final class VerifyBatcher implements AutoCloseable {
+
+    private final C2paEngine engine;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final long maxTotalSize;
+    private final long maxImageSize;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ThreadPoolExecutor senders;
+    private final Thread collector;
+    private final DistributionSummary batchSizes;
+
+    VerifyBatcher(C2paEngine engine, CoreServerProperties.Batch batch, int maxConcurrent, MeterRegistry meterRegistry) {
+        this.engine = engine;
+        this.maxSize = Math.max(1, batch.getMaxSize());
+        this.maxWaitNanos = batch.getMaxWait().toNanos();
+        this.maxTotalSize = batch.getMaxTotalSize().toBytes();
+        this.maxImageSize = batch.getMaxImageSize().toBytes();
+
+        CustomizableThreadFactory senderThreadFactory = new CustomizableThreadFactory("c2pa-verify-batch-");
+        senderThreadFactory.setDaemon(true);
+        this.senders = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), senderThreadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.senders.allowCoreThreadTimeOut(true);
+        this.batchSizes = DistributionSummary.builder("c2pa.verify.batch.size")
+                .register(meterRegistry);
+
+        this.collector = new Thread(this::collect, "c2pa-verify-batch-collector");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    /**
+     * 画像がまとめる対象の大きさかどうかを返します。
+     *
+     * @param image 画像データ
+     * @return まとめる対象であれば{@code true}
+     */
+    boolean accepts(byte[] image) {
+        return image.length <= maxImageSize;
+    }
+
+    /**
+     * 他のリクエストとまとめて画像を検証し、この画像の結果を返します。
+     *
+     * @param image    検証対象の画像データ
+     * @param fileName ファイル名
+     * @return 検証結果のJSON
+     */
+    byte[] verify(byte[] image, String fileName) {
+        Pending pending = new Pending(new C2paEngine.Image(image, fileName), new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.result().cancel(false);
+            throw new IllegalStateException("Interrupted while waiting for batched core response", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        collector.interrupt();
+        senders.shutdownNow();
+        CoreApiException closed = new CoreApiException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down", true, null);
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(closed);
+        }
+    }
+
+    private void collect() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Pending> batch = new ArrayList<>(maxSize);
+                Pending first = queue.take();
+                batch.add(first);
+                long totalSize = first.image().data().length;
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxSize && totalSize < maxTotalSize) {
+                    long remaining = deadline - System.nanoTime();
+                    // 待ち時間を過ぎても、既に届いているリクエストは上限まで取り込む
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    totalSize += next.image().data().length;
+                }
+                senders.execute(() -> send(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        batch.removeIf(pending -> pending.result().isDone());
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+        if (batch.size() == 1) {
+            Pending pending = batch.get(0);
+            try {
+                pending.result().complete(engine.verify(pending.image().data(), pending.image().fileName()));
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+            return;
+        }
+        try {
+            List<C2paEngine.Outcome> outcomes = engine.verifyBatch(batch.stream().map(Pending::image).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                C2paEngine.Outcome outcome = outcomes.get(i);
+                if (outcome.error() != null) {
+                    batch.get(i).result().completeExceptionally(outcome.error());
+                } else {
+                    batch.get(i).result().complete(outcome.body());
+                }
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 送信を待っている検証リクエスト。
+     */
+    private record Pending(C2paEngine.Image image, CompletableFuture<byte[]> result) {
+    }
+}
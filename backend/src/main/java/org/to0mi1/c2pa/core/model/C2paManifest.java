@@ -51,7 +51,8 @@ public class C2paManifest {
     /**
      * マニフェスト全体の検証状態。
      * <p>
-     * 可能な値: {@code "Valid"}（有効）、{@code "Invalid"}（無効）など。
+     * 可能な値: {@code "Valid"}（有効）、{@code "Trusted"}（有効で、署名証明書がトラストアンカーまで検証済み）、
+     * {@code "Invalid"}（無効）など。
      * この値は検証結果の総合的な評価を示します。
      */
     @JsonProperty("validation_state")
@@ -0,0 +1,31 @@
+package org.to0mi1.c2pa.core.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * C2PA Core APIのエラーレスポンス。
+ * <p>
+ * Core APIは、処理に失敗した場合に{@code error}と{@code message}を持つJSONを返します。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CoreError {
+
+    /**
+     * エラーの種類。
+     * <p>
+     * 例: {@code "Internal Server Error"}, {@code "Bad Request"}, {@code "file is required"}
+     */
+    @JsonProperty("error")
+    private String error;
+
+    /**
+     * エラーの詳細メッセージ。
+     * <p>
+     * 予期しない例外の場合は、例外のメッセージがそのまま設定されます。
+     */
+    @JsonProperty("message")
+    private String message;
+}
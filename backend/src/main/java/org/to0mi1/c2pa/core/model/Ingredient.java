@@ -0,0 +1,59 @@
+package org.to0mi1.c2pa.core.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * 材料（ingredient）。
+ * <p>
+ * コンテンツの作成に使用された元素材を表します。材料自身がC2PAマニフェストを持つ場合、
+ * {@link #activeManifest}がそのマニフェストを指し、来歴の連鎖を形成します。
+ *
+ * @see Manifest
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Ingredient {
+
+    /**
+     * 材料のタイトル。
+     */
+    @JsonProperty("title")
+    private String title;
+
+    /**
+     * 材料のフォーマット（MIMEタイプ）。
+     */
+    @JsonProperty("format")
+    private String format;
+
+    /**
+     * 材料のインスタンスID。
+     * <p>
+     * 形式: {@code "xmp:iid:{UUID}"}
+     */
+    @JsonProperty("instance_id")
+    private String instanceId;
+
+    /**
+     * コンテンツと材料の関係。
+     * <p>
+     * 可能な値:
+     * <ul>
+     *   <li>{@code "parentOf"} - 材料はこのコンテンツの編集元</li>
+     *   <li>{@code "componentOf"} - 材料はこのコンテンツの構成要素</li>
+     *   <li>{@code "inputTo"} - 材料は生成処理への入力</li>
+     * </ul>
+     */
+    @JsonProperty("relationship")
+    private String relationship;
+
+    /**
+     * 材料のアクティブなマニフェストのURN。材料がマニフェストを持たない場合は{@code null}。
+     * <p>
+     * 形式: {@code "urn:c2pa:{UUID}"}
+     */
+    @JsonProperty("active_manifest")
+    private String activeManifest;
+}
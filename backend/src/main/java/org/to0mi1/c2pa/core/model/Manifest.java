@@ -15,6 +15,7 @@ import java.util.List;
  *
  * @see Assertion
  * @see ClaimGeneratorInfo
+ * @see Ingredient
  * @see SignatureInfo
  * @see Thumbnail
  */
@@ -47,9 +48,11 @@ public class Manifest {
      * このコンテンツの作成に使用された元素材やソースコンテンツを表します。
      * 例: 合成画像の場合、元となった複数の画像が材料として記録されます。
      * 各材料は独自のマニフェストを持つことができ、来歴の連鎖を形成します。
+     *
+     * @see Ingredient
      */
     @JsonProperty("ingredients")
-    private List<Object> ingredients;
+    private List<Ingredient> ingredients;
 
     /**
      * インスタンスID。
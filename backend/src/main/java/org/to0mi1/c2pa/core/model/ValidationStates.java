@@ -0,0 +1,48 @@
+package org.to0mi1.c2pa.core.model;
+
+/**
+ * c2paライブラリが返すマニフェスト全体の検証状態（{@code validation_state}）。
+ * <p>
+ * トラストアンカーを設定してCore APIを起動した場合、署名証明書のチェーンをアンカーまで検証できた結果は
+ * {@code "Valid"}ではなく{@code "Trusted"}となります。いずれも署名とハッシュの検証には成功しています。
+ * <p>
+ * {@link #BINDING_NOT_CHECKED}はc2paライブラリではなく、マニフェストのみを検査した結果にバックエンドが設定する状態です。
+ *
+ * @see C2paManifest#getValidationState()
+ */
+public final class ValidationStates {
+
+    /**
+     * 署名とハッシュの検証に成功した状態。署名証明書の信頼性は検証されていません。
+     */
+    public static final String VALID = "Valid";
+
+    /**
+     * {@link #VALID}に加えて、署名証明書のチェーンをトラストアンカーまで検証できた状態。
+     */
+    public static final String TRUSTED = "Trusted";
+
+    /**
+     * 検証に失敗した状態。
+     */
+    public static final String INVALID = "Invalid";
+
+    /**
+     * マニフェストのみを検査した結果で、失敗項目がハードバインディング（画素データのハッシュ）に関するものだけの状態。
+     * 画素データを送信していないため失敗は当然であり、改変の有無は確認していないことを表します。
+     */
+    public static final String BINDING_NOT_CHECKED = "BindingNotChecked";
+
+    private ValidationStates() {
+    }
+
+    /**
+     * 署名とハッシュの検証に成功した状態（{@link #VALID}または{@link #TRUSTED}）かどうかを返します。
+     *
+     * @param validationState 検証状態
+     * @return 検証に成功した状態であれば{@code true}
+     */
+    public static boolean isSuccessful(String validationState) {
+        return VALID.equals(validationState) || TRUSTED.equals(validationState);
+    }
+}
@@ -0,0 +1,132 @@
+package org.to0mi1.c2pa.timing;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * 1リクエスト内の処理段階（ステージ）ごとの所要時間を記録するクラス。
+ * <p>
+ * {@link StageTimingFilter}がリクエストごとにインスタンスを作成し、処理中のスレッドに関連付けます。
+ * 各層は{@link #current()}で取得したインスタンスに対してステージの所要時間を記録します。
+ * リクエストの外（バックグラウンド処理など）で呼び出された場合は、何も記録しないインスタンスを返します。
+ * <p>
+ * 記録されるステージ:
+ * <ul>
+ *   <li>{@code multipart} - マルチパートリクエストの解析</li>
+ *   <li>{@code queue} - Core APIへの実行枠の待ち時間</li>
+ *   <li>{@code precomputed} - 署名直後の事前検証の結果の参照</li>
+ *   <li>{@code core} - Core APIとの往復（再試行・ヘッジを含む）</li>
+ *   <li>{@code deserialize} - Core APIの応答JSONの読み取り</li>
+ *   <li>{@code map} - レスポンスDTOへの変換</li>
+ *   <li>{@code trust} - 署名証明書の信頼性の評価</li>
+ *   <li>{@code index} - 検証結果の索引への登録</li>
+ *   <li>{@code serialize} - レスポンスの書き出し（低速リクエストのログのみ）</li>
+ * </ul>
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+    private static final RequestTimings NOOP = new RequestTimings(false);
+
+    private final boolean recording;
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private long serializationStartNanos;
+
+    private RequestTimings(boolean recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * 現在のスレッドで処理中のリクエストの記録先を返します。
+     *
+     * @return 記録先。リクエストの外で呼び出された場合は何も記録しないインスタンス
+     */
+    public static RequestTimings current() {
+        RequestTimings timings = CURRENT.get();
+        return timings != null ? timings : NOOP;
+    }
+
+    static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings(true);
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 処理を実行し、その所要時間をステージとして記録します。
+     *
+     * @param stage ステージ名
+     * @param call  実行する処理
+     * @param <T>   処理結果の型
+     * @return 処理結果
+     */
+    public <T> T time(String stage, Supplier<T> call) {
+        if (!recording) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * ステージの所要時間を記録します。同じステージが複数回記録された場合は合算します。
+     *
+     * @param stage ステージ名
+     * @param nanos 所要時間（ナノ秒）
+     */
+    public synchronized void record(String stage, long nanos) {
+        if (recording) {
+            stageNanos.merge(stage, nanos, Long::sum);
+        }
+    }
+
+    /**
+     * 低速リクエストのログに出力する付加情報を記録します。
+     *
+     * @param name  項目名
+     * @param value 値
+     */
+    public synchronized void attribute(String name, Object value) {
+        if (recording) {
+            attributes.put(name, value);
+        }
+    }
+
+    synchronized void markSerializationStart() {
+        if (recording) {
+            serializationStartNanos = System.nanoTime();
+        }
+    }
+
+    synchronized long serializationStartNanos() {
+        return serializationStartNanos;
+    }
+
+    synchronized Map<String, Object> attributes() {
+        return new LinkedHashMap<>(attributes);
+    }
+
+    /**
+     * 記録済みのステージを{@code Server-Timing}ヘッダーの形式で返します。
+     *
+     * @return 例: {@code multipart;dur=12.3, core;dur=845.0, map;dur=0.4}
+     */
+    public synchronized String toServerTiming() {
+        StringJoiner joiner = new StringJoiner(", ");
+        stageNanos.forEach((stage, nanos) ->
+                joiner.add(String.format(Locale.ROOT, "%s;dur=%.1f", stage, nanos / 1_000_000.0)));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package org.to0mi1.c2pa.timing;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * レスポンスの書き出し直前に、記録済みのステージを{@code Server-Timing}ヘッダーとして付与するアドバイス。
+ * <p>
+ * ヘッダーは本文より先に送信されるため、レスポンスの書き出し（{@code serialize}）自体の所要時間は
+ * ヘッダーに含まれず、低速リクエストのログにのみ出力されます。
+ */
+@ControllerAdvice
+public class ServerTimingResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTimings timings = RequestTimings.current();
+        String serverTiming = timings.toServerTiming();
+        if (!serverTiming.isEmpty()) {
+            response.getHeaders().set(SERVER_TIMING_HEADER, serverTiming);
+        }
+        timings.markSerializationStart();
+        return body;
+    }
+}
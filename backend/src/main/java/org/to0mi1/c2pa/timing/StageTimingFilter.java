@@ -0,0 +1,96 @@
+package org.to0mi1.c2pa.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * リクエストごとにステージ別の所要時間を記録し、閾値を超えたリクエストを構造化ログに出力するフィルター。
+ * <p>
+ * マルチパートリクエストの場合は、ここで本文の解析を先に行い、その所要時間を{@code multipart}ステージとして記録します。
+ * 解析結果はサーブレットコンテナが保持するため、後続の処理で再解析されることはありません。
+ *
+ * @see RequestTimings
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class StageTimingFilter extends OncePerRequestFilter {
+
+    private final long slowRequestThresholdNanos;
+
+    public StageTimingFilter(@Value("${c2pa.timing.slow-request-threshold:2s}") Duration slowRequestThreshold) {
+        this.slowRequestThresholdNanos = slowRequestThreshold.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        RequestTimings timings = RequestTimings.begin();
+        try {
+            if (isMultipart(request)) {
+                parseMultipart(request, timings);
+            }
+            filterChain.doFilter(request, response);
+        } finally {
+            long end = System.nanoTime();
+            long serializationStart = timings.serializationStartNanos();
+            if (serializationStart != 0) {
+                timings.record("serialize", end - serializationStart);
+            }
+            RequestTimings.end();
+            if (end - start >= slowRequestThresholdNanos) {
+                logSlowRequest(request, response, timings, end - start);
+            }
+        }
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+    }
+
+    private static void parseMultipart(HttpServletRequest request, RequestTimings timings) {
+        long start = System.nanoTime();
+        try {
+            request.getParts();
+        } catch (Exception ignored) {
+            // サイズ超過などの解析エラーは、後続のマルチパート解決処理で改めて報告される
+        } finally {
+            timings.record("multipart", System.nanoTime() - start);
+        }
+    }
+
+    private static void logSlowRequest(HttpServletRequest request, HttpServletResponse response,
+                                       RequestTimings timings, long totalNanos) {
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(totalNanos);
+        LoggingEventBuilder event = log.atWarn()
+                .addKeyValue("method", request.getMethod())
+                .addKeyValue("uri", request.getRequestURI())
+                .addKeyValue("status", response.getStatus())
+                .addKeyValue("totalMs", totalMillis)
+                .addKeyValue("payloadBytes", request.getContentLengthLong())
+                .addKeyValue("stages", timings.toServerTiming());
+        for (Map.Entry<String, Object> attribute : timings.attributes().entrySet()) {
+            event = event.addKeyValue(attribute.getKey(), attribute.getValue());
+        }
+        event.log("Slow request: {} {} took {} ms ({})",
+                request.getMethod(), request.getRequestURI(), totalMillis, timings.toServerTiming());
+    }
+}
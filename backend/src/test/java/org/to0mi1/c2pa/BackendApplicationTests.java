@@ -1,11 +1,24 @@
 package org.to0mi1.c2pa;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
 
 @SpringBootTest
 class BackendApplicationTests {
 
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void dataProperties(DynamicPropertyRegistry registry) {
+        registry.add("c2pa.provenance.snapshot-path", () -> dataDir.resolve("provenance.bin").toString());
+    }
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,243 @@
+package org.to0mi1.c2pa;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * スタブのCore APIに対して、署名と検証のAPIを通しで呼び出すテスト。
+ * <p>
+ * Core APIの応答の読み込みとレスポンスDTOの書き出しはリフレクションに依存するため、
+ * {@code ./gradlew nativeTest}でネイティブイメージとして実行し、JVMと同じ結果になることを確認します。
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SignVerifyRoundTripTests {
+
+    private static final byte[] ORIGINAL_IMAGE = "original-image".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MANIFEST_STORE = "jumb-c2pa-manifest-store".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PIXELS = "entropy-coded-pixels".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SIGNED_IMAGE = signedJpeg();
+    private static final String VERIFY_JSON = """
+            {
+              "active_manifest": "urn:c2pa:5b7d1c8e-2f6a-4c3e-9d21-8f0a6b4e7c10",
+              "manifests": {
+                "urn:c2pa:5b7d1c8e-2f6a-4c3e-9d21-8f0a6b4e7c10": {
+                  "title": "Round Trip",
+                  "instance_id": "xmp:iid:0e6f3f4b-7d7a-4f0e-b1d2-3c4a5b6c7d8e",
+                  "assertions": [
+                    {
+                      "label": "c2pa.actions.v2",
+                      "data": {
+                        "actions": [
+                          {
+                            "action": "c2pa.created",
+                            "digitalSourceType": "http://cv.iptc.org/newscodes/digitalsourcetype/digitalCreation"
+                          }
+                        ]
+                      }
+                    },
+                    {
+                      "label": "cawg.training-mining",
+                      "data": {
+                        "entries": {
+                          "c2pa.ai_inference": {
+                            "use": "constrained",
+                            "constraints_info": "Inference constraints description"
+                          }
+                        }
+                      }
+                    }
+                  ],
+                  "signature_info": {
+                    "alg": "Es256",
+                    "issuer": "C2PA Test Signing Cert",
+                    "common_name": "C2PA Signer",
+                    "cert_serial_number": "640229841392226413189608867977836244731148734950",
+                    "time": "2026-01-02T10:14:46+00:00"
+                  },
+                  "label": "urn:c2pa:5b7d1c8e-2f6a-4c3e-9d21-8f0a6b4e7c10"
+                }
+              },
+              "validation_state": "Valid"
+            }
+            """;
+    private static final byte[] VERIFY_RESPONSE = VERIFY_JSON.getBytes(StandardCharsets.UTF_8);
+    /**
+     * マニフェストのみを送信した場合の応答。画素データがないため、ハードバインディングの検証だけが失敗する
+     */
+    private static final byte[] MANIFEST_ONLY_RESPONSE = VERIFY_JSON.replace("\"validation_state\": \"Valid\"", """
+            "validation_results": {
+                "activeManifest": {
+                  "success": [{"code": "claimSignature.validated"}],
+                  "failure": [{"code": "assertion.dataHash.mismatch"}]
+                }
+              },
+              "validation_state": "Invalid\"""").getBytes(StandardCharsets.UTF_8);
+
+    private static final AtomicInteger signRequests = new AtomicInteger();
+    private static final AtomicInteger verifyRequests = new AtomicInteger();
+    private static final HttpServer coreServer = startCoreServer();
+
+    @TempDir
+    static Path dataDir;
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @DynamicPropertySource
+    static void coreServerProperties(DynamicPropertyRegistry registry) {
+        registry.add("c2pa.core-server.url", () -> "http://127.0.0.1:" + coreServer.getAddress().getPort());
+        registry.add("c2pa.provenance.snapshot-path", () -> dataDir.resolve("provenance.bin").toString());
+    }
+
+    @AfterAll
+    static void stopCoreServer() {
+        coreServer.stop(0);
+    }
+
+    @Test
+    void signThenVerify() {
+        RestClient client = RestClient.create("http://localhost:" + port);
+        int verifyRequestsBefore = verifyRequests.get();
+
+        MultiValueMap<String, Object> signParts = new LinkedMultiValueMap<>();
+        signParts.add("title", "Round Trip");
+        signParts.add("image", namedResource(ORIGINAL_IMAGE, "original.jpg"));
+        signParts.add("ai_inference", "constrained");
+        byte[] signed = client.post().uri("/api/c2pa/sign").body(signParts).retrieve().body(byte[].class);
+
+        assertThat(signed).isEqualTo(SIGNED_IMAGE);
+        assertThat(signRequests).hasValue(1);
+
+        // 署名直後の検証は事前検証の結果を、未署名の画像の検証はCore APIの応答をそれぞれ使用する
+        VerifyResponse precomputed = verify(client, SIGNED_IMAGE, "signed.jpg");
+        VerifyResponse direct = verify(client, ORIGINAL_IMAGE, "original.jpg");
+
+        assertThat(precomputed).isEqualTo(direct);
+        // Core APIの検証は署名直後の事前検証と、未署名の画像の検証の2回のみ
+        assertThat(verifyRequests).hasValue(verifyRequestsBefore + 2);
+        assertThat(direct.getTitle()).isEqualTo("Round Trip");
+        assertThat(direct.getIssuer()).isEqualTo("C2PA Test Signing Cert");
+        assertThat(direct.getAlgorithm()).isEqualTo("Es256");
+        assertThat(direct.getSignedAt().toInstant()).isEqualTo(Instant.parse("2026-01-02T10:14:46Z"));
+        assertThat(direct.getValidationState()).isEqualTo("Valid");
+        assertThat(direct.isBindingChecked()).isTrue();
+        assertThat(direct.getActions()).singleElement()
+                .satisfies(action -> assertThat(action.getAction()).isEqualTo("c2pa.created"));
+        assertThat(direct.getTrainingMining().getAiInference().getUse()).isEqualTo("constrained");
+    }
+
+    @Test
+    void inspectSignedImageWithoutCheckingBinding() {
+        RestClient client = RestClient.create("http://localhost:" + port);
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("image", namedResource(SIGNED_IMAGE, "signed.jpg"));
+
+        VerifyResponse inspected = client.post().uri("/api/c2pa/inspect").body(parts).retrieve()
+                .body(VerifyResponse.class);
+
+        // 改変されていない署名済み画像でも、マニフェストのみの検査では無効とせず、未検証であることを示す
+        assertThat(inspected.getValidationState()).isEqualTo("BindingNotChecked");
+        assertThat(inspected.isBindingChecked()).isFalse();
+        assertThat(inspected.getTitle()).isEqualTo("Round Trip");
+    }
+
+    private static VerifyResponse verify(RestClient client, byte[] image, String fileName) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("image", namedResource(image, fileName));
+        return client.post().uri("/api/c2pa/verify").body(parts).retrieve().body(VerifyResponse.class);
+    }
+
+    private static ByteArrayResource namedResource(byte[] image, String fileName) {
+        return new ByteArrayResource(image) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        };
+    }
+
+    private static HttpServer startCoreServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/verify", exchange -> {
+                verifyRequests.incrementAndGet();
+                byte[] request = exchange.getRequestBody().readAllBytes();
+                boolean manifestOnly = contains(request, MANIFEST_STORE) && !contains(request, PIXELS);
+                respond(exchange, "application/json", manifestOnly ? MANIFEST_ONLY_RESPONSE : VERIFY_RESPONSE);
+            });
+            server.createContext("/sign", exchange -> {
+                signRequests.incrementAndGet();
+                respond(exchange, "image/jpeg", SIGNED_IMAGE);
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * APP11セグメントにマニフェストストアを格納した、署名済みJPEGに相当するバイト列を作ります。
+     */
+    private static byte[] signedJpeg() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xEB, 0, (byte) (MANIFEST_STORE.length + 2)});
+        out.writeBytes(MANIFEST_STORE);
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xDA, 0, 2});
+        out.writeBytes(PIXELS);
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD9});
+        return out.toByteArray();
+    }
+
+    private static boolean contains(byte[] data, byte[] part) {
+        outer:
+        for (int i = 0; i <= data.length - part.length; i++) {
+            for (int j = 0; j < part.length; j++) {
+                if (data[i + j] != part[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
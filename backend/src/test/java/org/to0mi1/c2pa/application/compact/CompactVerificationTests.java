@@ -0,0 +1,144 @@
+package org.to0mi1.c2pa.application.compact;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+import org.to0mi1.c2pa.application.trust.TrustVerdict;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link CompactVerification}の変換と復元で、検証結果が変わらないことを確認するテスト。
+ */
+class CompactVerificationTests {
+
+    @Test
+    void roundTripsActiveManifestAndHistory() {
+        StringDictionary dictionary = new StringDictionary(65536, new SimpleMeterRegistry());
+        VerifyResponse response = sampleResponse();
+
+        VerifyResponse decoded = CompactVerification.encode(response, dictionary).decode(dictionary);
+
+        assertThat(decoded).isEqualTo(response);
+        assertThat(decoded.getHistory()).hasSize(2);
+        assertThat(decoded.getSignedAt().getOffset()).isEqualTo(ZoneOffset.ofHours(9));
+    }
+
+    @Test
+    void roundTripsNullFields() {
+        StringDictionary dictionary = new StringDictionary(65536, new SimpleMeterRegistry());
+        VerifyResponse response = new VerifyResponse();
+        response.setBindingChecked(false);
+        VerifyResponse.ManifestHistory empty = new VerifyResponse.ManifestHistory();
+        response.setHistory(List.of(empty));
+
+        VerifyResponse decoded = CompactVerification.encode(response, dictionary).decode(dictionary);
+
+        assertThat(decoded).isEqualTo(response);
+        assertThat(decoded.getActions()).isNull();
+        assertThat(decoded.getTrainingMining()).isNull();
+        assertThat(decoded.getHistory()).singleElement().isEqualTo(empty);
+    }
+
+    @Test
+    void distinguishesMissingHistoryFromEmptyHistory() {
+        StringDictionary dictionary = new StringDictionary(65536, new SimpleMeterRegistry());
+        VerifyResponse withoutHistory = new VerifyResponse();
+        VerifyResponse withEmptyHistory = new VerifyResponse();
+        withEmptyHistory.setHistory(new ArrayList<>());
+
+        assertThat(CompactVerification.encode(withoutHistory, dictionary).decode(dictionary).getHistory()).isNull();
+        assertThat(CompactVerification.encode(withEmptyHistory, dictionary).decode(dictionary).getHistory()).isEmpty();
+    }
+
+    @Test
+    void roundTripsTrainingMiningWithOnlyOneEntry() {
+        StringDictionary dictionary = new StringDictionary(65536, new SimpleMeterRegistry());
+        VerifyResponse response = new VerifyResponse();
+        VerifyResponse.TrainingMiningInfo trainingMining = new VerifyResponse.TrainingMiningInfo();
+        trainingMining.setAiGenerativeTraining(trainingMiningEntry("notAllowed", null));
+        response.setTrainingMining(trainingMining);
+        response.setActions(new ArrayList<>());
+
+        VerifyResponse decoded = CompactVerification.encode(response, dictionary).decode(dictionary);
+
+        assertThat(decoded).isEqualTo(response);
+        assertThat(decoded.getTrainingMining().getAiInference()).isNull();
+        assertThat(decoded.getActions()).isEmpty();
+    }
+
+    @Test
+    void keepsValuesAsPlainStringsWhenDictionaryIsFull() {
+        StringDictionary dictionary = new StringDictionary(2, new SimpleMeterRegistry());
+        VerifyResponse response = sampleResponse();
+
+        VerifyResponse decoded = CompactVerification.encode(response, dictionary).decode(dictionary);
+
+        assertThat(decoded).isEqualTo(response);
+        assertThat(dictionary.size()).isEqualTo(2);
+        assertThat(dictionary.id("never-registered")).isEqualTo(StringDictionary.NOT_REGISTERED);
+        assertThat(dictionary.intern("never-registered")).isEqualTo("never-registered");
+    }
+
+    private static VerifyResponse sampleResponse() {
+        VerifyResponse response = new VerifyResponse();
+        response.setTitle("photo.jpg");
+        response.setSigner("Example Signer");
+        response.setIssuer("Example CA");
+        response.setAlgorithm("Es256");
+        response.setSignedAt(ZonedDateTime.of(2026, 1, 2, 19, 14, 46, 123_000_000, ZoneOffset.ofHours(9)));
+        response.setValidationState("Valid");
+        response.setBindingChecked(true);
+        response.setTrust(TrustVerdict.TRUSTED);
+        response.setActions(List.of(
+                action("c2pa.created", "http://cv.iptc.org/newscodes/digitalsourcetype/digitalCreation"),
+                action("c2pa.edited", null)));
+        VerifyResponse.TrainingMiningInfo trainingMining = new VerifyResponse.TrainingMiningInfo();
+        trainingMining.setAiInference(trainingMiningEntry("constrained", "Inference constraints description"));
+        trainingMining.setAiGenerativeTraining(trainingMiningEntry("notAllowed", null));
+        response.setTrainingMining(trainingMining);
+
+        VerifyResponse.ManifestHistory latest = new VerifyResponse.ManifestHistory();
+        latest.setLabel("urn:c2pa:5b7d1c8e-2f6a-4c3e-9d21-8f0a6b4e7c10");
+        latest.setTitle("photo.jpg");
+        latest.setSigner("Example Signer");
+        latest.setIssuer("Example CA");
+        latest.setAlgorithm("Es256");
+        latest.setSignedAt(response.getSignedAt());
+        latest.setTrust(TrustVerdict.TRUSTED);
+        latest.setClaimGenerator("C2PA Example");
+        latest.setActions(response.getActions());
+        latest.setTrainingMining(trainingMining);
+
+        VerifyResponse.ManifestHistory original = new VerifyResponse.ManifestHistory();
+        original.setLabel("urn:c2pa:0e6f3f4b-7d7a-4f0e-b1d2-3c4a5b6c7d8e");
+        original.setTitle("original.jpg");
+        original.setSigner("Other Signer");
+        original.setIssuer("Other CA");
+        original.setAlgorithm("Ps256");
+        original.setSignedAt(ZonedDateTime.of(2025, 12, 31, 23, 59, 59, 0, ZoneOffset.UTC));
+        original.setTrust(TrustVerdict.UNTRUSTED);
+        original.setActions(List.of(action("c2pa.opened", null)));
+        response.setHistory(List.of(latest, original));
+        return response;
+    }
+
+    private static VerifyResponse.ActionInfo action(String action, String digitalSourceType) {
+        VerifyResponse.ActionInfo info = new VerifyResponse.ActionInfo();
+        info.setAction(action);
+        info.setDigitalSourceType(digitalSourceType);
+        return info;
+    }
+
+    private static VerifyResponse.TrainingMiningEntry trainingMiningEntry(String use, String constraintsInfo) {
+        VerifyResponse.TrainingMiningEntry entry = new VerifyResponse.TrainingMiningEntry();
+        entry.setUse(use);
+        entry.setConstraintsInfo(constraintsInfo);
+        return entry;
+    }
+}
@@ -0,0 +1,103 @@
+package org.to0mi1.c2pa.application.trust;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.to0mi1.c2pa.application.dto.VerifyResponse;
+import org.to0mi1.c2pa.core.model.C2paManifest;
+import org.to0mi1.c2pa.core.model.Manifest;
+import org.to0mi1.c2pa.core.model.SignatureInfo;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link TrustEvaluator}が、Core APIによる証明書チェーンの検証結果に基づいて信頼性を評価することを確認するテスト。
+ */
+class TrustEvaluatorTests {
+
+    private static final String ACTIVE = "urn:c2pa:active";
+    private static final String PARENT = "urn:c2pa:parent";
+
+    @Test
+    void trustsActiveManifestWhenCoreReportsTrusted() {
+        TrustEvaluator evaluator = new TrustEvaluator(new TrustProperties(), new SimpleMeterRegistry());
+
+        VerifyResponse response = evaluator.annotate(responseFor(), manifestStore("Trusted"));
+
+        assertThat(response.getTrust()).isEqualTo(TrustVerdict.TRUSTED);
+        assertThat(response.getHistory().get(0).getTrust()).isEqualTo(TrustVerdict.TRUSTED);
+        assertThat(response.getHistory().get(1).getTrust()).isEqualTo(TrustVerdict.UNTRUSTED);
+    }
+
+    @Test
+    void doesNotTrustValidStateWithoutChainVerification() {
+        TrustEvaluator evaluator = new TrustEvaluator(new TrustProperties(), new SimpleMeterRegistry());
+
+        VerifyResponse response = evaluator.annotate(responseFor(), manifestStore("Valid"));
+
+        assertThat(response.getTrust()).isEqualTo(TrustVerdict.UNTRUSTED);
+    }
+
+    @Test
+    void doesNotTrustInvalidState() {
+        TrustEvaluator evaluator = new TrustEvaluator(new TrustProperties(), new SimpleMeterRegistry());
+
+        VerifyResponse response = evaluator.annotate(responseFor(), manifestStore("Invalid"));
+
+        assertThat(response.getTrust()).isEqualTo(TrustVerdict.UNTRUSTED);
+    }
+
+    @Test
+    void anchorsNarrowTrustedResults() {
+        TrustProperties properties = new TrustProperties();
+        TrustProperties.Anchor anchor = new TrustProperties.Anchor();
+        anchor.setIssuer("Other CA");
+        properties.setAnchors(List.of(anchor));
+        TrustEvaluator evaluator = new TrustEvaluator(properties, new SimpleMeterRegistry());
+
+        VerifyResponse response = evaluator.annotate(responseFor(), manifestStore("Trusted"));
+
+        assertThat(response.getTrust()).isEqualTo(TrustVerdict.UNTRUSTED);
+    }
+
+    @Test
+    void rejectsDisallowedAlgorithmEvenWhenTrusted() {
+        TrustProperties properties = new TrustProperties();
+        properties.setAllowedAlgorithms(List.of("es384"));
+        TrustEvaluator evaluator = new TrustEvaluator(properties, new SimpleMeterRegistry());
+
+        VerifyResponse response = evaluator.annotate(responseFor(), manifestStore("Trusted"));
+
+        assertThat(response.getTrust()).isEqualTo(TrustVerdict.DISALLOWED_ALGORITHM);
+    }
+
+    private static VerifyResponse responseFor() {
+        VerifyResponse.ManifestHistory active = new VerifyResponse.ManifestHistory();
+        active.setLabel(ACTIVE);
+        VerifyResponse.ManifestHistory parent = new VerifyResponse.ManifestHistory();
+        parent.setLabel(PARENT);
+        VerifyResponse response = new VerifyResponse();
+        response.setHistory(List.of(active, parent));
+        return response;
+    }
+
+    private static C2paManifest manifestStore(String validationState) {
+        C2paManifest store = new C2paManifest();
+        store.setActiveManifest(ACTIVE);
+        store.setManifests(Map.of(ACTIVE, manifest("Example CA", "1a"), PARENT, manifest("Example CA", "2b")));
+        store.setValidationState(validationState);
+        return store;
+    }
+
+    private static Manifest manifest(String issuer, String serial) {
+        SignatureInfo signatureInfo = new SignatureInfo();
+        signatureInfo.setIssuer(issuer);
+        signatureInfo.setCertSerialNumber(serial);
+        signatureInfo.setAlg("Es256");
+        Manifest manifest = new Manifest();
+        manifest.setSignatureInfo(signatureInfo);
+        return manifest;
+    }
+}
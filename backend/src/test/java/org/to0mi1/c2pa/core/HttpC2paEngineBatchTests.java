@@ -0,0 +1,105 @@
+package org.to0mi1.c2pa.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClientResponseException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link HttpC2paEngine#parseBatch(byte[], int)}が、{@code /verify/batch}の応答を画像ごとの結果に分割することを確認するテスト。
+ */
+class HttpC2paEngineBatchTests {
+
+    private final HttpC2paEngine engine = new HttpC2paEngine(null, null, new CoreServerProperties(),
+            JsonMapper.builder().build());
+
+    @Test
+    void splitsSuccessAndFailureItemsInOrder() {
+        byte[] body = concat(
+                frame("200 ", "{\"validation_state\":\"Valid\"}"),
+                frame("422 ", "{\"message\":\"unsupported\"}"),
+                frame("200 ", "{\n\"manifests\":{}\n}"));
+
+        List<C2paEngine.Outcome> outcomes = engine.parseBatch(body, 3);
+
+        assertThat(outcomes).hasSize(3);
+        assertThat(new String(outcomes.get(0).body(), StandardCharsets.UTF_8)).isEqualTo("{\"validation_state\":\"Valid\"}");
+        assertThat(outcomes.get(0).error()).isNull();
+        assertThat(outcomes.get(1).body()).isNull();
+        assertThat(outcomes.get(1).error()).isInstanceOfSatisfying(RestClientResponseException.class, e -> {
+            assertThat(e.getStatusCode().value()).isEqualTo(422);
+            assertThat(e.getResponseBodyAsString()).isEqualTo("{\"message\":\"unsupported\"}");
+        });
+        assertThat(new String(outcomes.get(2).body(), StandardCharsets.UTF_8)).isEqualTo("{\n\"manifests\":{}\n}");
+    }
+
+    @Test
+    void acceptsEmptyItemBody() {
+        List<C2paEngine.Outcome> outcomes = engine.parseBatch(ascii("200 0\n"), 1);
+
+        assertThat(outcomes).singleElement().satisfies(outcome -> assertThat(outcome.body()).isEmpty());
+    }
+
+    @Test
+    void rejectsTruncatedItemBody() {
+        byte[] body = concat(frame("200 ", "{}"), ascii("200 10\n{\"a\""));
+
+        assertThatThrownBy(() -> engine.parseBatch(body, 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Truncated");
+    }
+
+    @Test
+    void rejectsHeaderWithoutNewline() {
+        assertThatThrownBy(() -> engine.parseBatch(concat(frame("200 ", "{}"), ascii("200 2")), 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Malformed");
+    }
+
+    @Test
+    void rejectsMalformedHeaders() {
+        for (String header : List.of("200\n{}", "OK 2\n{}", "200 two\n{}", "200 -1\n{}", "42 2\n{}", " 2\n{}")) {
+            assertThatThrownBy(() -> engine.parseBatch(ascii(header), 1))
+                    .as(header)
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void rejectsResultCountMismatch() {
+        byte[] body = concat(frame("200 ", "{}"), frame("200 ", "{}"));
+
+        assertThatThrownBy(() -> engine.parseBatch(body, 3))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("2 results for 3 images");
+        assertThatThrownBy(() -> engine.parseBatch(body, 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("2 results for 1 images");
+        assertThatThrownBy(() -> engine.parseBatch(new byte[0], 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("0 results for 1 images");
+    }
+
+    private static byte[] frame(String status, String body) {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        return concat(ascii(status + content.length + "\n"), content);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
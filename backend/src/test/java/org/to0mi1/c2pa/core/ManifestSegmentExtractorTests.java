@@ -0,0 +1,152 @@
+package org.to0mi1.c2pa.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ManifestSegmentExtractor}が、マニフェストを格納したセグメントのみを抜き出すことを確認するテスト。
+ */
+class ManifestSegmentExtractorTests {
+
+    private static final byte[] SOI = {(byte) 0xFF, (byte) 0xD8};
+    private static final byte[] EOI = {(byte) 0xFF, (byte) 0xD9};
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @Test
+    void concatenatesAllJpegApp11SegmentsInOrder() {
+        byte[] jumbf1 = jpegSegment(0xEB, "JP-part-1");
+        byte[] jumbf2 = jpegSegment(0xEB, "JP-part-2");
+        byte[] image = concat(SOI,
+                jpegSegment(0xE0, "JFIF"),
+                jumbf1,
+                jpegSegment(0xDB, "quantization"),
+                jumbf2,
+                jpegSegment(0xDA, "scan-header"),
+                "entropy-coded pixels".getBytes(StandardCharsets.US_ASCII),
+                EOI);
+
+        byte[] extracted = ManifestSegmentExtractor.extract(image);
+
+        assertThat(extracted).isEqualTo(concat(SOI, jumbf1, jumbf2, EOI));
+    }
+
+    @Test
+    void skipsJpegFillBytesAndStandaloneMarkers() {
+        byte[] jumbf = jpegSegment(0xEB, "JP-part-1");
+        byte[] image = concat(SOI,
+                new byte[]{(byte) 0xFF, (byte) 0xFF},
+                jumbf,
+                new byte[]{(byte) 0xFF, (byte) 0xD0},
+                jpegSegment(0xDA, "scan-header"),
+                EOI);
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isEqualTo(concat(SOI, jumbf, EOI));
+    }
+
+    @Test
+    void returnsEmptyJpegWhenNoManifestIsPresent() {
+        byte[] image = concat(SOI,
+                jpegSegment(0xE0, "JFIF"),
+                jpegSegment(0xDA, "scan-header"),
+                EOI);
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isEqualTo(concat(SOI, EOI));
+    }
+
+    @Test
+    void rejectsTruncatedJpegSegment() {
+        byte[] segment = jpegSegment(0xEB, "JP-part-1");
+        byte[] image = concat(SOI, Arrays.copyOf(segment, segment.length - 3));
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isNull();
+    }
+
+    @Test
+    void rejectsJpegWithMissingMarker() {
+        byte[] image = concat(SOI, jpegSegment(0xE0, "JFIF"), new byte[]{0x00, 0x01, 0x02, 0x03});
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isNull();
+    }
+
+    @Test
+    void rejectsJpegSegmentWithInvalidLength() {
+        byte[] image = concat(SOI, new byte[]{(byte) 0xFF, (byte) 0xEB, 0x00, 0x01}, EOI);
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isNull();
+    }
+
+    @Test
+    void keepsOnlyPngHeaderAndManifestChunks() {
+        byte[] ihdr = pngChunk("IHDR", new byte[13]);
+        byte[] cabx1 = pngChunk("caBX", "JP-part-1".getBytes(StandardCharsets.US_ASCII));
+        byte[] cabx2 = pngChunk("caBX", "JP-part-2".getBytes(StandardCharsets.US_ASCII));
+        byte[] iend = pngChunk("IEND", new byte[0]);
+        byte[] image = concat(PNG_SIGNATURE,
+                ihdr,
+                cabx1,
+                pngChunk("IDAT", "pixels".getBytes(StandardCharsets.US_ASCII)),
+                cabx2,
+                iend);
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isEqualTo(concat(PNG_SIGNATURE, ihdr, cabx1, cabx2, iend));
+    }
+
+    @Test
+    void returnsHeaderOnlyPngWhenNoManifestIsPresent() {
+        byte[] ihdr = pngChunk("IHDR", new byte[13]);
+        byte[] iend = pngChunk("IEND", new byte[0]);
+        byte[] image = concat(PNG_SIGNATURE, ihdr, pngChunk("IDAT", new byte[64]), iend);
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isEqualTo(concat(PNG_SIGNATURE, ihdr, iend));
+    }
+
+    @Test
+    void rejectsTruncatedPngChunk() {
+        byte[] cabx = pngChunk("caBX", "JP-part-1".getBytes(StandardCharsets.US_ASCII));
+        byte[] image = concat(PNG_SIGNATURE, pngChunk("IHDR", new byte[13]), Arrays.copyOf(cabx, cabx.length - 5));
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isNull();
+    }
+
+    @Test
+    void rejectsPngChunkWithOversizedLength() {
+        byte[] image = concat(PNG_SIGNATURE,
+                new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 'c', 'a', 'B', 'X'});
+
+        assertThat(ManifestSegmentExtractor.extract(image)).isNull();
+    }
+
+    @Test
+    void returnsNullForUnsupportedFormats() {
+        assertThat(ManifestSegmentExtractor.extract("GIF89a".getBytes(StandardCharsets.US_ASCII))).isNull();
+        assertThat(ManifestSegmentExtractor.extract(new byte[0])).isNull();
+        assertThat(ManifestSegmentExtractor.extract(SOI)).isNull();
+    }
+
+    private static byte[] jpegSegment(int marker, String payload) {
+        byte[] data = payload.getBytes(StandardCharsets.US_ASCII);
+        int length = data.length + 2;
+        return concat(new byte[]{(byte) 0xFF, (byte) marker, (byte) (length >> 8), (byte) length}, data);
+    }
+
+    private static byte[] pngChunk(String type, byte[] data) {
+        int length = data.length;
+        return concat(new byte[]{(byte) (length >> 24), (byte) (length >> 16), (byte) (length >> 8), (byte) length},
+                type.getBytes(StandardCharsets.US_ASCII),
+                data,
+                new byte[4]);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,52 @@
+package org.to0mi1.c2pa.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link NativeC2paEngine}が、Core APIの{@code wrapper.sign}と同じマニフェストの定義を組み立てることを確認するテスト。
+ */
+class NativeC2paEngineTests {
+
+    @Test
+    void buildsCreatedActionWithoutTrainingMiningByDefault() {
+        Map<String, Object> manifest = NativeC2paEngine.manifest("Photo", "image/jpeg", null, null, null, null);
+
+        assertThat(manifest).containsEntry("title", "Photo").containsEntry("format", "image/jpeg");
+        assertThat(assertions(manifest)).singleElement().satisfies(assertion -> {
+            assertThat(assertion).containsEntry("label", "c2pa.actions");
+            assertThat(assertion.get("data")).isEqualTo(Map.of("actions", List.of(Map.of(
+                    "action", "c2pa.created",
+                    "digitalSourceType", "http://cv.iptc.org/newscodes/digitalsourcetype/digitalCreation"))));
+        });
+    }
+
+    @Test
+    void addsTrainingMiningEntriesWithConstraintsOnlyWhenConstrained() {
+        Map<String, Object> manifest = NativeC2paEngine.manifest("Photo", "image/png",
+                "constrained", "research only", "allowed", "ignored");
+
+        assertThat(assertions(manifest)).hasSize(2).last().isEqualTo(Map.of(
+                "label", "cawg.training-mining",
+                "data", Map.of("entries", Map.of(
+                        "c2pa.ai_inference", Map.of("use", "constrained", "constraints_info", "research only"),
+                        "c2pa.ai_generative_training", Map.of("use", "allowed")))));
+    }
+
+    @Test
+    void ignoresUnknownTrainingMiningUses() {
+        Map<String, Object> manifest = NativeC2paEngine.manifest(null, "image/jpeg", "maybe", null, "", null);
+
+        assertThat(manifest).containsEntry("title", "No Title");
+        assertThat(assertions(manifest)).hasSize(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> assertions(Map<String, Object> manifest) {
+        return (List<Map<String, Object>>) manifest.get("assertions");
+    }
+}
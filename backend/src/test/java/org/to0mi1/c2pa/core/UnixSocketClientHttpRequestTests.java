@@ -0,0 +1,285 @@
+package org.to0mi1.c2pa.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 実際のUnixドメインソケットのサーバーに対して、{@link UnixSocketClientHttpRequest}の応答の読み取りと接続の再利用を確認するテスト。
+ */
+class UnixSocketClientHttpRequestTests {
+
+    private static final URI VERIFY_URI = URI.create("http://localhost/verify");
+
+    @TempDir
+    Path tempDir;
+
+    private ServerSocketChannel server;
+    private Thread acceptor;
+    private volatile Handler handler;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final CountDownLatch closedByServer = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        Path socketPath = tempDir.resolve("core.sock");
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        acceptor = new Thread(this::acceptLoop, "uds-test-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void readsContentLengthResponseAndReusesConnection() throws IOException {
+        handler = (connection, request) -> Reply.of("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello");
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(true)) {
+            assertThat(execute(factory, "first")).isEqualTo("hello");
+            assertThat(execute(factory, "second")).isEqualTo("hello");
+        }
+
+        assertThat(connections).hasValue(1);
+        assertThat(requests).containsExactly("first", "second");
+    }
+
+    @Test
+    void readsChunkedResponseAndReusesConnection() throws IOException {
+        handler = (connection, request) -> Reply.of("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n6;name=value\r\n world\r\n0\r\nX-Trailer: ignored\r\n\r\n");
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(true)) {
+            assertThat(execute(factory, "first")).isEqualTo("hello world");
+            assertThat(execute(factory, "second")).isEqualTo("hello world");
+        }
+
+        assertThat(connections).hasValue(1);
+    }
+
+    @Test
+    void doesNotReuseConnectionAfterConnectionClose() throws IOException {
+        handler = (connection, request) -> Reply.closing(
+                "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\nok");
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(true)) {
+            assertThat(execute(factory, "first")).isEqualTo("ok");
+            assertThat(execute(factory, "second")).isEqualTo("ok");
+            assertThat(factory.leased()).isZero();
+        }
+
+        assertThat(connections).hasValue(2);
+    }
+
+    @Test
+    void readsResponseWithoutLengthUntilClose() throws IOException {
+        handler = (connection, request) -> Reply.closing("HTTP/1.1 200 OK\r\n\r\nuntil close");
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(true)) {
+            assertThat(execute(factory, "first")).isEqualTo("until close");
+            assertThat(execute(factory, "second")).isEqualTo("until close");
+        }
+
+        assertThat(connections).hasValue(2);
+    }
+
+    @Test
+    void discardsIdleConnectionClosedByServer() throws Exception {
+        // Connection: closeを返さずに切断し、クライアントにはアイドル状態の接続が残る
+        handler = (connection, request) -> Reply.closing("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(false)) {
+            assertThat(execute(factory, "first")).isEqualTo("ok");
+            assertThat(closedByServer.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(execute(factory, "second")).isEqualTo("ok");
+        }
+
+        assertThat(connections).hasValue(2);
+        assertThat(requests).containsExactly("first", "second");
+    }
+
+    @Test
+    void retriesOnceWhenReusedConnectionClosesBeforeResponding() throws IOException {
+        // 2本目のリクエストを受け取った直後に、応答を返さずに切断する
+        handler = (connection, request) -> connection == 0 && request == 1
+                ? Reply.DROP
+                : Reply.of("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(true)) {
+            assertThat(execute(factory, "first")).isEqualTo("ok");
+            assertThat(execute(factory, "second")).isEqualTo("ok");
+            assertThat(factory.leased()).isZero();
+        }
+
+        assertThat(connections).hasValue(2);
+        assertThat(requests).containsExactly("first", "second", "second");
+    }
+
+    @Test
+    void doesNotRetryWhenRetryIsDisabled() throws IOException {
+        handler = (connection, request) -> connection == 0 && request == 1
+                ? Reply.DROP
+                : Reply.of("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(false)) {
+            assertThat(execute(factory, "first")).isEqualTo("ok");
+            assertThatThrownBy(() -> execute(factory, "second")).isInstanceOf(IOException.class);
+            assertThat(factory.leased()).isZero();
+        }
+
+        assertThat(connections).hasValue(1);
+        assertThat(requests).containsExactly("first", "second");
+    }
+
+    @Test
+    void doesNotRetryFreshConnectionClosedBeforeResponding() {
+        handler = (connection, request) -> Reply.DROP;
+
+        try (UnixSocketClientHttpRequestFactory factory = factory(true)) {
+            assertThatThrownBy(() -> execute(factory, "first")).isInstanceOf(IOException.class);
+        }
+
+        assertThat(connections).hasValue(1);
+        assertThat(requests).containsExactly("first");
+    }
+
+    private UnixSocketClientHttpRequestFactory factory(boolean retryStaleConnection) {
+        return new UnixSocketClientHttpRequestFactory(tempDir.resolve("core.sock"), 4, Duration.ofSeconds(5),
+                retryStaleConnection);
+    }
+
+    private static String execute(UnixSocketClientHttpRequestFactory factory, String body) throws IOException {
+        ClientHttpRequest request = factory.createRequest(VERIFY_URI, HttpMethod.POST);
+        request.getBody().write(body.getBytes(StandardCharsets.UTF_8));
+        try (ClientHttpResponse response = request.execute()) {
+            assertThat(response.getStatusCode().value()).isEqualTo(200);
+            return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            int connection = connections.getAndIncrement();
+            Thread worker = new Thread(() -> serve(channel, connection), "uds-test-connection-" + connection);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void serve(SocketChannel channel, int connection) {
+        try (channel) {
+            InputStream in = Channels.newInputStream(channel);
+            OutputStream out = Channels.newOutputStream(channel);
+            for (int request = 0; ; request++) {
+                String body = readRequest(in);
+                if (body == null) {
+                    return;
+                }
+                requests.add(body);
+                Reply reply = handler.reply(connection, request);
+                if (reply.response() != null) {
+                    out.write(reply.response().getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                }
+                if (reply.close()) {
+                    return;
+                }
+            }
+        } catch (IOException ignored) {
+            // クライアントが切断した
+        } finally {
+            closedByServer.countDown();
+        }
+    }
+
+    /**
+     * リクエストを読み取り、本文を返します。接続が閉じられた場合は{@code null}を返します。
+     */
+    private static String readRequest(InputStream in) throws IOException {
+        int contentLength = 0;
+        if (readLine(in) == null) {
+            return null;
+        }
+        for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+            if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(line.indexOf(':') + 1).trim());
+            }
+        }
+        return new String(in.readNBytes(contentLength), StandardCharsets.UTF_8);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return null;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        Reply reply(int connection, int request);
+    }
+
+    /**
+     * @param response 返す応答。{@code null}の場合は応答を返さない
+     * @param close    応答の後に接続を閉じるかどうか
+     */
+    private record Reply(String response, boolean close) {
+
+        static final Reply DROP = new Reply(null, true);
+
+        static Reply of(String response) {
+            return new Reply(response, false);
+        }
+
+        static Reply closing(String response) {
+            return new Reply(response, true);
+        }
+    }
+}
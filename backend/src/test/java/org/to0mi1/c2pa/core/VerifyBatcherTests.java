@@ -0,0 +1,152 @@
+package org.to0mi1.c2pa.core;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link VerifyBatcher}が、まとめて検証した結果と失敗をそれぞれの呼び出し元に返すことを確認するテスト。
+ */
+class VerifyBatcherTests {
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+    private VerifyBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    void routesEachItemResultToItsCaller() throws Exception {
+        FakeEngine engine = new FakeEngine(images -> images.stream()
+                .map(image -> image.fileName().startsWith("bad")
+                        ? C2paEngine.Outcome.failure(new IllegalArgumentException(image.fileName()))
+                        : C2paEngine.Outcome.success(result(image.fileName())))
+                .toList());
+        batcher = batcher(engine, 3, Duration.ofSeconds(5));
+
+        Future<byte[]> first = submit("first.jpg");
+        Future<byte[]> bad = submit("bad.jpg");
+        Future<byte[]> third = submit("third.jpg");
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(result("first.jpg"));
+        assertThat(third.get(10, TimeUnit.SECONDS)).isEqualTo(result("third.jpg"));
+        assertThatThrownBy(() -> bad.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("bad.jpg");
+        assertThat(engine.batches).singleElement().satisfies(batch -> assertThat(batch).hasSize(3));
+    }
+
+    @Test
+    void failsEveryCallerWhenTheBatchFails() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Core API returned 2 results for 3 images");
+        FakeEngine engine = new FakeEngine(images -> {
+            throw failure;
+        });
+        batcher = batcher(engine, 3, Duration.ofSeconds(5));
+
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (String fileName : List.of("a.jpg", "b.jpg", "c.jpg")) {
+            results.add(submit(fileName));
+        }
+
+        for (Future<byte[]> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause()
+                    .isSameAs(failure);
+        }
+    }
+
+    @Test
+    void sendsSingleRequestWithoutBatching() throws Exception {
+        FakeEngine engine = new FakeEngine(images -> {
+            throw new AssertionError("verifyBatch must not be called for a single image");
+        });
+        batcher = batcher(engine, 3, Duration.ofMillis(10));
+
+        assertThat(submit("only.jpg").get(10, TimeUnit.SECONDS)).isEqualTo(result("only.jpg"));
+        assertThat(engine.singles).containsExactly("only.jpg");
+        assertThat(engine.batches).isEmpty();
+    }
+
+    @Test
+    void acceptsOnlyImagesUpToMaxImageSize() {
+        CoreServerProperties.Batch batch = new CoreServerProperties.Batch();
+        batch.setMaxImageSize(DataSize.ofBytes(4));
+        batcher = new VerifyBatcher(new FakeEngine(images -> List.of()), batch, 1, new SimpleMeterRegistry());
+
+        assertThat(batcher.accepts(new byte[4])).isTrue();
+        assertThat(batcher.accepts(new byte[5])).isFalse();
+    }
+
+    private Future<byte[]> submit(String fileName) {
+        return callers.submit(() -> batcher.verify(fileName.getBytes(StandardCharsets.UTF_8), fileName));
+    }
+
+    private static VerifyBatcher batcher(C2paEngine engine, int maxSize, Duration maxWait) {
+        CoreServerProperties.Batch batch = new CoreServerProperties.Batch();
+        batch.setMaxSize(maxSize);
+        batch.setMaxWait(maxWait);
+        return new VerifyBatcher(engine, batch, 2, new SimpleMeterRegistry());
+    }
+
+    private static byte[] result(String fileName) {
+        return ("{\"title\":\"" + fileName + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * まとめた呼び出しの内容を記録し、指定した関数で結果を返すエンジン。
+     */
+    private static final class FakeEngine implements C2paEngine {
+
+        private final Function<List<Image>, List<Outcome>> batchResults;
+        private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        private final List<String> singles = new CopyOnWriteArrayList<>();
+
+        FakeEngine(Function<List<Image>, List<Outcome>> batchResults) {
+            this.batchResults = batchResults;
+        }
+
+        @Override
+        public byte[] verify(byte[] image, String fileName) {
+            singles.add(fileName);
+            return result(fileName);
+        }
+
+        @Override
+        public List<Outcome> verifyBatch(List<Image> images) {
+            batches.add(images.stream().map(Image::fileName).toList());
+            return batchResults.apply(images);
+        }
+
+        @Override
+        public byte[] sign(String title, byte[] image, String fileName,
+                           String aiInference, String aiInferenceConstraintsInfo,
+                           String aiGenerativeTraining, String aiGenerativeTrainingConstraintsInfo) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -1,38 +1,130 @@
+import contextlib
+import hashlib
+import io
 import json
+import mimetypes
 import os
+import tempfile
 
-from flask import Flask, request, jsonify, make_response
+import c2pa
+from flask import Flask, abort, request, jsonify, make_response
 
 import wrapper
 
 app = Flask(__name__)
 
-os.environ['C2PA_NO_VERIFY'] = '1'
+# 信頼する証明書（トラストアンカー）のPEMファイル（例: C2PA_TRUST_ANCHORS=/etc/c2pa/trust-anchors.pem）
+# 指定した場合は署名証明書のチェーンをアンカーまで検証し、結果を検証ステータスに含める
+# （信頼できれば validation_state が Trusted、できなければ失敗項目に signingCredential.untrusted）
+TRUST_ANCHORS = os.environ.get('C2PA_TRUST_ANCHORS')
+if TRUST_ANCHORS:
+    with open(TRUST_ANCHORS, encoding='utf-8') as anchors:
+        c2pa.load_settings(json.dumps({
+            'verify': {'verify_trust': True},
+            'trust': {'trust_anchors': anchors.read()},
+        }))
+else:
+    os.environ['C2PA_NO_VERIFY'] = '1'
+
+# バックエンドと共有するスプールディレクトリ（例: C2PA_CORE_SPOOL=/var/spool/c2pa）
+# 指定した場合、画像を本文ではなくスプール上のパスで受け取り、署名結果もパスで返せる
+SPOOL_DIR = os.environ.get('C2PA_CORE_SPOOL')
+
+
+def _sha256_file(fh):
+    digest = hashlib.sha256()
+    for chunk in iter(lambda: fh.read(1024 * 1024), b''):
+        digest.update(chunk)
+    fh.seek(0)
+    return digest.hexdigest()
+
+
+def _open_image():
+    """リクエストの画像を (コンテキストマネージャ, MIMEタイプ) で返す。
+
+    スプール経由の場合は自ら開いたファイルを返し、with を抜けると閉じる。
+    マルチパートの場合はアップロードのストリームを閉じずにそのまま渡す（後始末は Flask が行う）。
+    """
+    path = request.form.get('image_path')
+    if not path:
+        f = request.files.get('image')
+        if not f:
+            abort(400, 'file is required')
+        return contextlib.nullcontext(f.stream), f.mimetype
+    if not SPOOL_DIR:
+        abort(400, 'spool is not enabled')
+    real_path = os.path.realpath(path)
+    if os.path.dirname(real_path) != os.path.realpath(SPOOL_DIR):
+        abort(400, 'image_path is outside the spool directory')
+    try:
+        fh = open(real_path, 'rb')
+    except FileNotFoundError:
+        abort(400, 'spooled image not found')
+    if _sha256_file(fh) != request.form.get('image_sha256'):
+        fh.close()
+        abort(400, 'spooled image hash mismatch')
+    mime_type = request.form.get('mime_type') or mimetypes.guess_type(request.form.get('file_name') or '')[0]
+    return fh, mime_type
+
+
+@app.get("/health")
+def health():
+    return jsonify(status='ok'), 200
+
 
 @app.post("/verify")
 def verify():
-    f = request.files.get('image')
-    if not f:
-        return jsonify(error='file is required'), 400
-    return jsonify(json.loads(wrapper.verify(f, f.mimetype))), 200
+    image, mime_type = _open_image()
+    with image as f:
+        return jsonify(json.loads(wrapper.verify(f, mime_type))), 200
+
+
+@app.post("/verify/batch")
+def verify_batch():
+    """複数の画像をまとめて検証する。
+
+    応答は画像ごとに "<ステータス> <バイト数>\\n" の見出し行と、/verify と同じ本文を連結したもの。
+    1件の失敗で他の画像の結果が失われないよう、失敗はその画像の結果として返す。
+    """
+    files = request.files.getlist('image')
+    if not files:
+        abort(400, 'file is required')
+    out = io.BytesIO()
+    for f in files:
+        try:
+            body = wrapper.verify(f, f.mimetype).encode('utf-8')
+            status = 200
+        except Exception as error:
+            status = 500
+            body = json.dumps({'error': 'Internal Server Error', 'message': str(error)}).encode('utf-8')
+        out.write(f'{status} {len(body)}\n'.encode('ascii'))
+        out.write(body)
+    response = make_response(out.getvalue())
+    response.headers.set('Content-Type', 'application/octet-stream')
+    return response
 
 
 @app.post("/sign")
 def sign():
-    f = request.files.get('image')
-    if not f:
-        return jsonify(error='file is required'), 400
-    img_bin = wrapper.sign(
-        f,
-        f.mimetype,
-        title=request.form.get('title'),
-        ai_inference=request.form.get('ai_inference'),
-        ai_inference_constraints_info=request.form.get('ai_inference_constraints_info'),
-        ai_generative_training=request.form.get('ai_generative_training'),
-        ai_generative_training_constraints_info=request.form.get('ai_generative_training_constraints_info')
-    )
+    image, mime_type = _open_image()
+    with image as f:
+        img_bin = wrapper.sign(
+            f,
+            mime_type,
+            title=request.form.get('title'),
+            ai_inference=request.form.get('ai_inference'),
+            ai_inference_constraints_info=request.form.get('ai_inference_constraints_info'),
+            ai_generative_training=request.form.get('ai_generative_training'),
+            ai_generative_training_constraints_info=request.form.get('ai_generative_training_constraints_info')
+        )
+    if request.form.get('output') == 'path' and SPOOL_DIR:
+        # 署名済み画像をスプールに書き出し、パスとハッシュのみを返す（読み取り後の削除はバックエンドが行う）
+        fd, out_path = tempfile.mkstemp(prefix='out-', dir=SPOOL_DIR)
+        with os.fdopen(fd, 'wb') as out:
+            out.write(img_bin)
+        return jsonify(path=out_path, sha256=hashlib.sha256(img_bin).hexdigest()), 200
     response = make_response(img_bin)
-    response.headers.set('Content-Type', f.mimetype)
+    response.headers.set('Content-Type', mime_type)
     return response
 
 
@@ -53,4 +145,14 @@ def handle_exception(error):
 
 
 if __name__ == '__main__':
-    app.run(debug=True)
+    # 同じPodのバックエンドからはUnixドメインソケットで受け付ける（例: C2PA_CORE_SOCKET=/var/run/c2pa/core.sock）
+    socket_path = os.environ.get('C2PA_CORE_SOCKET')
+    if socket_path:
+        if os.path.exists(socket_path):
+            os.remove(socket_path)
+        app.run(host=f'unix://{socket_path}')
+    elif os.environ.get('C2PA_CORE_PORT'):
+        # バックエンドが起動するワーカーとして、割り当てられたループバックのポートで待ち受ける
+        app.run(host='127.0.0.1', port=int(os.environ['C2PA_CORE_PORT']), threaded=True)
+    else:
+        app.run(debug=True)
@@ -0,0 +1,67 @@
+import io
+import json
+import sys
+import types
+
+import pytest
+
+# c2pa SDK と署名鍵を読み込まずに済むよう、app が import する前に wrapper を差し替える
+_wrapper = types.ModuleType('wrapper')
+sys.modules['wrapper'] = _wrapper
+sys.modules.setdefault('c2pa', types.ModuleType('c2pa'))
+
+import app as core_app  # noqa: E402
+
+JPEG = b'\xff\xd8\xff\xd9'
+
+
+@pytest.fixture
+def client():
+    core_app.app.config['TESTING'] = True
+    return core_app.app.test_client()
+
+
+@pytest.fixture
+def calls():
+    recorded = []
+
+    def verify(stream, mime_type):
+        recorded.append(('verify', stream.read(), mime_type))
+        return json.dumps({'validation_state': 'Valid'})
+
+    def sign(stream, mime_type, **kwargs):
+        recorded.append(('sign', stream.read(), mime_type, kwargs))
+        return b'signed:' + JPEG
+
+    _wrapper.verify = verify
+    _wrapper.sign = sign
+    return recorded
+
+
+def test_verify_accepts_multipart_upload(client, calls):
+    response = client.post('/verify', data={'image': (io.BytesIO(JPEG), 'photo.jpg', 'image/jpeg')},
+                           content_type='multipart/form-data')
+
+    assert response.status_code == 200
+    assert response.get_json() == {'validation_state': 'Valid'}
+    assert calls == [('verify', JPEG, 'image/jpeg')]
+
+
+def test_sign_accepts_multipart_upload(client, calls):
+    response = client.post('/sign', data={'image': (io.BytesIO(JPEG), 'photo.jpg', 'image/jpeg'),
+                                          'title': 'photo'},
+                           content_type='multipart/form-data')
+
+    assert response.status_code == 200
+    assert response.data == b'signed:' + JPEG
+    assert response.headers['Content-Type'] == 'image/jpeg'
+    assert calls[0][0:3] == ('sign', JPEG, 'image/jpeg')
+    assert calls[0][3]['title'] == 'photo'
+
+
+def test_verify_without_image_is_bad_request(client, calls):
+    response = client.post('/verify', data={}, content_type='multipart/form-data')
+
+    assert response.status_code == 400
+    assert response.get_json()['message'] == 'file is required'
+    assert calls == []